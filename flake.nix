@@ -35,6 +35,7 @@
 
             makeWrapper ${pkgs.jdk25}/bin/java $out/bin/jcmdshell \
               --add-flags "--enable-native-access=ALL-UNNAMED" \
+              --add-flags "--add-modules jdk.incubator.vector" \
               --add-flags "-jar $out/share/jcmdshell/jcmdshell.jar"
 
             runHook postInstall
@@ -0,0 +1,25 @@
+@echo off
+rem Starts the fat JAR built by Maven.  When target\Jcmdshell.aot exists
+rem (mvn -Paot package) the JVM starts from that AOT cache; pass --cold as
+rem the first argument to start without it.
+setlocal
+for %%I in ("%~dp0.") do set "HOME_DIR=%%~fI"
+set "JAR=%HOME_DIR%\target\Jcmdshell-fat.jar"
+set "AOT=%HOME_DIR%\target\Jcmdshell.aot"
+
+set "CACHE="
+if /I "%~1"=="--cold" (
+    shift
+) else if exist "%AOT%" (
+    set "CACHE=-XX:AOTCache=%AOT%"
+)
+
+set "ARGS="
+:collect
+if "%~1"=="" goto run
+set ARGS=%ARGS% %1
+shift
+goto collect
+
+:run
+java %CACHE% --enable-native-access=ALL-UNNAMED --add-modules jdk.incubator.vector -jar "%JAR%"%ARGS%
@@ -0,0 +1,22 @@
+#!/bin/sh
+# Starts the fat JAR built by Maven.  When target/Jcmdshell.aot exists
+# (mvn -Paot package) the JVM starts from that AOT cache; pass --cold as
+# the first argument to start without it.
+#
+# The JAR path and JVM options must match the training run exactly, or the
+# JVM ignores the cache, so keep them in step with the aot profile in pom.xml.
+
+HOME_DIR=$(cd "$(dirname "$0")" && pwd -P)
+JAR="$HOME_DIR/target/Jcmdshell-fat.jar"
+AOT="$HOME_DIR/target/Jcmdshell.aot"
+
+CACHE=
+if [ "$1" = "--cold" ]
+then
+    shift
+elif [ -f "$AOT" ]
+then
+    CACHE="-XX:AOTCache=$AOT"
+fi
+
+exec "${JAVA:-java}" $CACHE --enable-native-access=ALL-UNNAMED --add-modules jdk.incubator.vector -jar "$JAR" "$@"
@@ -0,0 +1,178 @@
+package xyz.stackpancakes.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.stackpancakes.shell.core.CommandList;
+import xyz.stackpancakes.shell.parse.CommandParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-line cost of {@link CommandParser} against the tokenizer it
+ * replaced, which cut a line at list operators, then at pipes, then at
+ * whitespace, stripping quotes as it went, and finally picked the
+ * redirections out of each segment's words.  Run with {@code -prof gc} to
+ * see the bytes allocated per line ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark
+{
+    @Param({ "simple", "quoted", "pipeline", "list" })
+    private String shape;
+
+    private String line;
+
+    @Setup
+    public void setUp()
+    {
+        line = switch (shape)
+        {
+            case "simple" -> "dir";
+            case "quoted" -> "copy \"My Documents/report final.txt\" backup/";
+            case "pipeline" -> "grep -i -n error logs/app.log | head -n 20 > errors.txt 2>&1";
+            case "list" -> "mkdir build && cd build || print \"could not enter build\"; dir &";
+            default -> throw new IllegalArgumentException(shape);
+        };
+    }
+
+    @Benchmark
+    public CommandList parser()
+    {
+        return CommandParser.parse(line);
+    }
+
+    @Benchmark
+    public List<List<List<String>>> legacy()
+    {
+        return Legacy.parse(line);
+    }
+
+    /**
+     * The previous tokenizer, kept only as a baseline: one list of segments
+     * per step, one list of words per segment, redirections split off.
+     */
+    private static final class Legacy
+    {
+        private static final List<String> OPERATORS = List.of("<", ">", ">>", "2>", "2>>");
+
+        static List<List<List<String>>> parse(String input)
+        {
+            String text = input.trim();
+            List<List<List<String>>> steps = new ArrayList<>();
+            StringBuilder piece = new StringBuilder();
+            boolean inQuotes = false;
+            for (int i = 0; i < text.length(); i++)
+            {
+                char c = text.charAt(i);
+                if (c == '"')
+                    inQuotes = !inQuotes;
+                boolean doubled = c != ';' && i + 1 < text.length() && text.charAt(i + 1) == c;
+                boolean separator = !inQuotes && (c == ';' || c == '&' || c == '|' && doubled)
+                        && !(c == '&' && !doubled && i > 0 && text.charAt(i - 1) == '>');
+                if (!separator)
+                {
+                    piece.append(c);
+                    continue;
+                }
+                steps.add(step(piece.toString().trim()));
+                piece.setLength(0);
+                if (doubled)
+                    i++;
+            }
+            if (!piece.toString().isBlank())
+                steps.add(step(piece.toString().trim()));
+            return steps;
+        }
+
+        private static List<List<String>> step(String trimmed)
+        {
+            if (trimmed.contains("|") || trimmed.contains(">") || trimmed.contains("<"))
+                return segments(trimmed).stream().map(Legacy::splitQuotedArgs).map(Legacy::withoutRedirections).toList();
+            String[] parts = trimmed.split("\\s+", 2);
+            List<String> words = new ArrayList<>();
+            words.add(parts[0]);
+            words.addAll(splitQuotedArgs(parts.length > 1 ? parts[1] : ""));
+            return List.of(words);
+        }
+
+        private static List<String> withoutRedirections(List<String> tokens)
+        {
+            List<String> words = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++)
+            {
+                if (tokens.get(i).equals("2>&1"))
+                    continue;
+                if (OPERATORS.contains(tokens.get(i)))
+                    i++;
+                else
+                    words.add(tokens.get(i));
+            }
+            return words;
+        }
+
+        private static List<String> splitQuotedArgs(String input)
+        {
+            List<String> tokens = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean inQuotes = false;
+            for (char c : input.toCharArray())
+            {
+                if (c == '"')
+                {
+                    inQuotes = !inQuotes;
+                    continue;
+                }
+                if (Character.isWhitespace(c) && !inQuotes)
+                {
+                    if (!current.isEmpty())
+                    {
+                        tokens.add(current.toString());
+                        current.setLength(0);
+                    }
+                }
+                else
+                    current.append(c);
+            }
+            if (!current.isEmpty())
+                tokens.add(current.toString());
+            return tokens;
+        }
+
+        private static List<String> segments(String line)
+        {
+            List<String> segments = new ArrayList<>();
+            StringBuilder segment = new StringBuilder();
+            boolean inQuotes = false;
+            for (char c : line.toCharArray())
+            {
+                if (c == '"')
+                    inQuotes = !inQuotes;
+                if (c == '|' && !inQuotes)
+                {
+                    segments.add(segment.toString().trim());
+                    segment.setLength(0);
+                }
+                else
+                    segment.append(c);
+            }
+            segments.add(segment.toString().trim());
+            return segments;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package xyz.stackpancakes.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import xyz.stackpancakes.shell.util.TextCounter;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar {@link TextCounter} with the one returned by
+ * {@link TextCounter#create()}, which is vectorised when the benchmark JVM
+ * runs with {@code --add-modules jdk.incubator.vector}.  The input is
+ * log-like text held off-heap, as a mapped file would be.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class TextCounterBenchmark
+{
+    private static final byte[] ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789:/.-_".getBytes();
+
+    @Param({ "65536", "67108864" })
+    private int size;
+
+    private Arena arena;
+    private MemorySegment text;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        arena = Arena.ofShared();
+        text = arena.allocate(size);
+        SplittableRandom random = new SplittableRandom(42);
+        for (long i = 0; i < size; i++)
+        {
+            int roll = random.nextInt(100);
+            byte b = roll < 2 ? (byte) '\n' : roll < 15 ? (byte) ' ' : ALPHABET[random.nextInt(ALPHABET.length)];
+            text.set(ValueLayout.JAVA_BYTE, i, b);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        arena.close();
+    }
+
+    @Benchmark
+    public long scalar()
+    {
+        TextCounter counter = new TextCounter();
+        counter.update(text);
+        return counter.lines() + counter.words();
+    }
+
+    @Benchmark
+    public long vector()
+    {
+        TextCounter counter = TextCounter.create();
+        counter.update(text);
+        return counter.lines() + counter.words();
+    }
+}
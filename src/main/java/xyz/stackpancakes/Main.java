@@ -6,18 +6,26 @@ import org.jline.reader.impl.DefaultParser;
 import org.jline.terminal.Terminal;
 import org.jline.terminal.TerminalBuilder;
 
+import xyz.stackpancakes.shell.core.CommandList;
 import xyz.stackpancakes.shell.core.CommandResult;
 import xyz.stackpancakes.shell.core.ReservedWords;
+import xyz.stackpancakes.shell.daemon.ShellDaemon;
+import xyz.stackpancakes.shell.job.JobTable;
+import xyz.stackpancakes.shell.script.Script;
 import xyz.stackpancakes.shell.util.*;
 
-import java.io.File;
+import java.io.ByteArrayOutputStream;
+import java.io.Console;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.function.Function;
-import java.util.stream.Stream;
 
 public final class Main
 {
@@ -72,7 +80,8 @@ public final class Main
                     if (!p.isAbsolute())
                         p = CurrentDirectory.get().resolve(p).normalize();
 
-                    if (Files.isDirectory(p))
+                    FileAttributeCache.FileAttributes attributes = FileAttributeCache.get(p);
+                    if (attributes.directory())
                     {
                         String displ = Ansi.withBackground(
                                 Ansi.withForeground(c.value(), Ansi.Foreground.WHITE),
@@ -92,7 +101,7 @@ public final class Main
                         continue;
                     }
 
-                    if (FileSystemUtils.isExecutable(p))
+                    if (attributes.exists() && attributes.executable())
                     {
                         String displ = Ansi.withForeground(c.value(), Ansi.Foreground.GREEN);
 
@@ -119,37 +128,11 @@ public final class Main
     {
         return (_, parsedLine, candidates) ->
         {
-            String pathEnv = System.getenv("PATH");
-            if (pathEnv == null || pathEnv.isEmpty())
-                return;
-
             String currentWord = parsedLine.word();
             if (currentWord == null || currentWord.isEmpty())
                 return;
 
-            String[] pathDirs = pathEnv.split(File.pathSeparator);
-            Set<String> executables = new HashSet<>();
-
-            for (String pathDir : pathDirs)
-            {
-                Path dirPath = Paths.get(pathDir);
-                if (!Files.isDirectory(dirPath))
-                    continue;
-
-                try (Stream<Path> stream = Files.list(dirPath))
-                {
-                    stream.filter(Files::isRegularFile)
-                            .filter(FileSystemUtils::isExecutable)
-                            .map(p -> p.getFileName().toString())
-                            .filter(name -> name.startsWith(currentWord))
-                            .forEach(executables::add);
-                }
-                catch (IOException ignored)
-                {
-                }
-            }
-
-            for (String exe : executables)
+            for (String exe : PathExecutableIndex.withPrefix(currentWord))
                 candidates.add(new Candidate(
                         exe,
                         Ansi.withForeground(exe, Ansi.Foreground.GREEN),
@@ -201,8 +184,53 @@ public final class Main
             );
         }
 
+        Invocation invocation = parseArguments(args);
+
         REPL repl = new REPL();
 
+        if (invocation.daemon())
+            System.exit(ShellDaemon.serve(repl, invocation.socket()) ? 0 : 2);
+
+        if (invocation.command() != null)
+        {
+            boolean succeeded = repl.executeCommand(invocation.command());
+            if (!invocation.interactive())
+            {
+                awaitJobs();
+                PrinterUtils.printFormatted("", succeeded ? System.out : System.err);
+                System.exit(succeeded ? 0 : 1);
+            }
+        }
+
+        if (invocation.script() != null)
+        {
+            int status = runScript(repl, readScript(invocation.script()));
+            if (!invocation.interactive())
+            {
+                awaitJobs();
+                System.exit(status);
+            }
+        }
+
+        if (!invocation.interactive() && !isInteractive())
+        {
+            int status = runInput(repl);
+            awaitJobs();
+            System.exit(status);
+        }
+
+        runInteractive(repl);
+    }
+
+    /**
+     * The interactive session: only here are the terminal, the line reader
+     * and its completers set up, and the {@code PATH} index built, so
+     * one-shot and scripted runs start without any of them.
+     */
+    private static void runInteractive(REPL repl) throws IOException
+    {
+        PathExecutableIndex.startBuilding();
+
         Terminal terminal = TerminalBuilder.builder()
                 .system(true)
                 .jna(true)
@@ -226,18 +254,7 @@ public final class Main
                 .option(LineReader.Option.CASE_INSENSITIVE, true)
                 .build();
 
-        String eval = getString(args);
-
-        if (eval != null)
-        {
-            if (!repl.executeCommand(eval))
-            {
-                PrinterUtils.printFormatted("", System.err);
-                System.exit(1);
-            }
-            PrinterUtils.printFormatted("", System.out);
-            System.exit(0);
-        }
+        JobTable.setNotifier(reader::printAbove);
 
         repl.executeCommand("ver");
 
@@ -270,46 +287,144 @@ public final class Main
         }
     }
 
-    private static String getString(String[] args)
+    /**
+     * The work requested on the command line: a single command
+     * ({@code -e}) or a script file ({@code -f}), both {@code null} when
+     * neither was given.  {@code interactive} ({@code -i}) asks for an
+     * interactive session afterwards, even when standard input is not a
+     * terminal.  {@code daemon} ({@code --daemon}) serves commands on
+     * {@code socket}, or the default socket when that is {@code null}.
+     */
+    private record Invocation(String command, String script, boolean interactive, boolean daemon, Path socket) {}
+
+    private static Invocation parseArguments(String[] args)
     {
-        String eval = null;
+        String command = null;
+        String script = null;
+        boolean interactive = false;
+        boolean daemon = false;
+        Path socket = null;
 
         for (int i = 0; i < args.length; i++)
         {
             String a = args[i];
-
-            if (a.equals("-e"))
+            boolean hasValue = i + 1 < args.length;
+
+            if (a.equals("-i") || a.equalsIgnoreCase("--INTERACTIVE"))
+                interactive = true;
+            else if (command != null || script != null || daemon)
+                usage();
+            else if ((a.equals("-e") || a.equalsIgnoreCase("--EXECUTE")) && hasValue)
+                command = args[++i];
+            else if (a.startsWith("-e="))
+                command = a.substring(3);
+            else if ((a.equals("-f") || a.equalsIgnoreCase("--FILE")) && hasValue)
+                script = args[++i];
+            else if (a.startsWith("-f="))
+                script = a.substring(3);
+            else if (a.equalsIgnoreCase("--DAEMON"))
+                daemon = true;
+            else if (a.regionMatches(true, 0, "--DAEMON=", 0, 9))
             {
-                if (eval != null)
-                    usage();
-                if (i + 1 >= args.length)
-                    usage();
-                eval = args[++i];
-                continue;
+                daemon = true;
+                socket = Path.of(a.substring(9));
             }
+            else
+                usage();
+        }
+        if (daemon && interactive)
+            usage();
 
-            if (a.equalsIgnoreCase("--EXECUTE"))
-            {
-                if (eval != null)
-                    usage();
-                if (i + 1 >= args.length)
-                    usage();
-                eval = args[++i];
-                continue;
-            }
+        return new Invocation(command, script, interactive, daemon, socket);
+    }
+
+    /**
+     * Whether commands come from a person at a terminal.  When the input is
+     * a pipe or a file the lines are run as a script instead, without the
+     * banner, prompts or line editing.
+     */
+    private static boolean isInteractive()
+    {
+        Console console = System.console();
+        return console != null && console.isTerminal();
+    }
+
+    private static byte[] readScript(String name)
+    {
+        try
+        {
+            return Files.readAllBytes(CurrentDirectory.resolve(name));
+        }
+        catch (IOException e)
+        {
+            ErrorPrinter.print(Ansi.withForeground("Error", Ansi.Foreground.RED) + ": Cannot read script " + FileSystemUtils.describeFailure(Path.of(name), e));
+            System.exit(2);
+            return null;
+        }
+    }
 
-            if (a.startsWith("-e="))
+    /**
+     * Runs every line of a script in this JVM and returns the exit status of
+     * the last one, 0 for success and 1 for failure.  A failing line does not
+     * stop the script.
+     */
+    private static int runScript(REPL repl, byte[] content)
+    {
+        boolean succeeded = true;
+        for (CommandList line : Script.parse(new String(content, StandardCharsets.UTF_8), repl::parse).lines())
+        {
+            succeeded = repl.execute(line);
+            System.out.flush();
+        }
+        return succeeded ? 0 : 1;
+    }
+
+    /**
+     * Runs standard input line by line as it arrives, so the shell can be
+     * fed by a producer that stays open or driven as a co-process.  Bytes
+     * are read one at a time, as {@code sh} does from a pipe, so a program
+     * started by one line that reads standard input gets exactly the lines
+     * after it.  Returns the status of the last line, as {@link #runScript}.
+     */
+    private static int runInput(REPL repl) throws IOException
+    {
+        InputStream in = new FileInputStream(FileDescriptor.in);
+        ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        boolean succeeded = true;
+        int b;
+        do
+        {
+            b = in.read();
+            if (b != -1 && b != '\n')
             {
-                if (eval != null)
-                    usage();
-                eval = a.substring(3);
+                pending.write(b);
                 continue;
             }
-
-            usage();
+            String line = pending.toString(StandardCharsets.UTF_8).strip();
+            pending.reset();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            succeeded = repl.execute(repl.parse(line));
+            System.out.flush();
         }
+        while (b != -1);
+        return succeeded ? 0 : 1;
+    }
 
-        return eval;
+    /**
+     * Background jobs run on threads of this JVM, so a one-shot or
+     * scripted run waits for them rather than ending them by exiting.
+     */
+    private static void awaitJobs()
+    {
+        try
+        {
+            JobTable.awaitAll();
+        }
+        catch (InterruptedException _)
+        {
+            Thread.currentThread().interrupt();
+        }
     }
 
     private static String getString(Map<ReservedWords, Function<List<String>, CommandResult>> commands)
@@ -332,7 +447,7 @@ public final class Main
 
     private static void usage()
     {
-        PrinterUtils.printFormatted(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": Jcmdshell [(-e <command> | -e=<command> | --EXECUTE <command>)]", System.err);
+        PrinterUtils.printFormatted(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": Jcmdshell [(-e <command> | -e=<command> | --EXECUTE <command>) | (-f <script> | -f=<script> | --FILE <script>)] [-i | --INTERACTIVE] | --DAEMON[=<socket>]", System.err);
         System.exit(2);
     }
 }
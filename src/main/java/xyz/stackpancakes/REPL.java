@@ -2,22 +2,31 @@ package xyz.stackpancakes;
 
 import xyz.stackpancakes.shell.command.*;
 import xyz.stackpancakes.shell.command.function.FunctionCommands;
+import xyz.stackpancakes.shell.core.CommandLine;
+import xyz.stackpancakes.shell.core.CommandList;
 import xyz.stackpancakes.shell.core.ParsedCommand;
 import xyz.stackpancakes.shell.core.ReservedWords;
 import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.SimpleCommand;
+import xyz.stackpancakes.shell.core.StreamCommand;
+import xyz.stackpancakes.shell.job.Job;
+import xyz.stackpancakes.shell.job.JobTable;
+import xyz.stackpancakes.shell.parse.CommandParser;
+import xyz.stackpancakes.shell.pipeline.ExternalStage;
+import xyz.stackpancakes.shell.pipeline.NativePipeline;
+import xyz.stackpancakes.shell.pipeline.Pipeline;
+import xyz.stackpancakes.shell.pipeline.PipelineStage;
+import xyz.stackpancakes.shell.pipeline.RedirectedStage;
+import xyz.stackpancakes.shell.pipeline.Redirections;
+import xyz.stackpancakes.shell.pipeline.StreamStage;
 import xyz.stackpancakes.shell.util.*;
 
-import java.io.File;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.function.Function;
 
@@ -28,25 +37,47 @@ public final class REPL
     public static final byte PATCH = 0;
 
     private static final Map<ReservedWords, Function<List<String>, CommandResult>> commands = new EnumMap<>(ReservedWords.class);
+    private static final Map<ReservedWords, StreamCommand> streamCommands = new EnumMap<>(ReservedWords.class);
+    private static final Object captureLock = new Object();
 
     public REPL()
     {
-        register(ReservedWords.DIR, args -> new ListDirectoriesCommand().execute(args));
+        registerStream(ReservedWords.DIR, new ListDirectoriesCommand());
         register(ReservedWords.CHDIR, args -> new ChangeDirectoriesCommand().execute(args));
-        register(ReservedWords.COPY, args -> new CopyCommand().execute(args));
-        register(ReservedWords.DELETE, args -> new RemoveCommand().execute(args));
+        registerStream(ReservedWords.COPY, new CopyCommand());
+        registerStream(ReservedWords.DELETE, new RemoveCommand());
         register(ReservedWords.MKDIR, args -> new MakeDirectoriesCommand().execute(args));
         register(ReservedWords.RMDIR, args -> new RemoveDirectoriesCommand().execute(args));
         register(ReservedWords.RENAME, args -> new RenameCommand().execute(args));
-        register(ReservedWords.HELP, _ -> FunctionCommands.helpCommand());
+        registerStream(ReservedWords.HELP, (_, _, out, _) -> FunctionCommands.helpCommand(out));
         register(ReservedWords.NEW, FunctionCommands::newCommand);
-        register(ReservedWords.SHOW, FunctionCommands::showCommand);
-        register(ReservedWords.VERSION, _ -> FunctionCommands.versionCommand());
-        register(ReservedWords.PRINT, FunctionCommands::printCommand);
+        registerStream(ReservedWords.SHOW, new ShowCommand());
+        registerStream(ReservedWords.HEAD, new HeadCommand());
+        registerStream(ReservedWords.TAIL, new TailCommand());
+        registerStream(ReservedWords.GREP, new GrepCommand());
+        registerStream(ReservedWords.FIND, new FindCommand());
+        registerStream(ReservedWords.CHECKSUM, new ChecksumCommand());
+        registerStream(ReservedWords.DU, new DiskUsageCommand());
+        registerStream(ReservedWords.WC, new WordCountCommand());
+        registerStream(ReservedWords.VERSION, (_, _, out, _) -> FunctionCommands.versionCommand(out));
+        registerStream(ReservedWords.PRINT, (args, _, out, _) -> FunctionCommands.printCommand(args, out));
         register(ReservedWords.MCD, FunctionCommands::MCDCommand);
-        register(ReservedWords.EXIT, _ -> { System.exit(0); return CommandResult.Exit; });
-        register(ReservedWords.CLEAR, _ -> { System.out.print(Ansi.CLEAR_SCREEN); return CommandResult.Success; });
-        register(ReservedWords.WHEREAMI, _ -> { System.out.println(CurrentDirectory.get()); return CommandResult.Success; });
+        registerStream(ReservedWords.HASH, new HashCommand());
+        registerStream(ReservedWords.JOBS, new JobsCommand());
+        registerStream(ReservedWords.FG, new ForegroundCommand());
+        registerStream(ReservedWords.WAIT, new WaitCommand());
+        registerStream(ReservedWords.KILL, new KillCommand());
+        register(ReservedWords.REHASH, _ -> { CommandHash.clear(); return CommandResult.Success; });
+        register(ReservedWords.EXIT, _ ->
+        {
+            // A daemon outlives its clients' commands; EXIT there just ends the command.
+            if (RemoteSession.active())
+                return CommandResult.Success;
+            System.exit(0);
+            return CommandResult.Exit;
+        });
+        registerStream(ReservedWords.CLEAR, (_, _, out, _) -> { out.print(Ansi.CLEAR_SCREEN); return CommandResult.Success; });
+        registerStream(ReservedWords.WHEREAMI, (_, _, out, _) -> { out.println(CurrentDirectory.get()); return CommandResult.Success; });
         register(ReservedWords.PAUSE, _ ->
         {
             try
@@ -74,21 +105,86 @@ public final class REPL
         commands.put(word, fn);
     }
 
+    /**
+     * Registers a stream-capable built‑in.  It is also reachable through the
+     * plain command table, writing straight to the terminal.
+     */
+    private void registerStream(ReservedWords word, StreamCommand cmd)
+    {
+        streamCommands.put(word, cmd);
+        register(word, args ->
+        {
+            try (OutputSink sink = OutputSink.toTerminal())
+            {
+                return cmd.execute(args, StreamCommand.NO_INPUT, sink, System.err);
+            }
+        });
+    }
+
     private void alias(ReservedWords alias, ReservedWords target)
     {
         commands.put(alias, commands.get(target));
+        if (streamCommands.containsKey(target))
+            streamCommands.put(alias, streamCommands.get(target));
     }
 
     public boolean executeCommand(String input)
     {
         if (input == null || input.isBlank())
             return true;
+        return execute(parse(input));
+    }
+
+    /**
+     * Parses a line without running it, so callers that run the same lines
+     * repeatedly, such as scripts, can keep the result.
+     */
+    public CommandList parse(String input)
+    {
+        return CommandParser.parse(input);
+    }
 
-        String trimmed = input.trim();
-        if (trimmed.contains("|") || trimmed.contains(">") || trimmed.contains("<"))
-            return executePipeline(trimmed);
+    public boolean execute(CommandList list)
+    {
+        return run(list) == CommandResult.Success;
+    }
 
-        ParsedCommand parsed = parseArgs(trimmed);
+    /**
+     * Runs the steps of {@code list} in order, skipping an {@code &&} step
+     * after a failure and an {@code ||} step after a success, and returns
+     * the status of the last step that ran.  A step sent to the background
+     * counts as a success once started.  Cached file attributes are dropped
+     * after every step, since any command may have changed the files.
+     */
+    public CommandResult run(CommandList list)
+    {
+        if (list.syntaxError() != null)
+        {
+            ErrorPrinter.setLastError(list.syntaxError());
+            ErrorPrinter.print(list.syntaxError());
+            return CommandResult.InvalidSyntax;
+        }
+        CommandResult status = CommandResult.Success;
+        for (CommandList.Step step : list.steps())
+        {
+            boolean succeeded = status == CommandResult.Success;
+            if (step.connector() == CommandList.Connector.AND && !succeeded
+                    || step.connector() == CommandList.Connector.OR && succeeded)
+                continue;
+            status = run(step.command());
+            FileAttributeCache.clear();
+        }
+        return status;
+    }
+
+    private CommandResult run(CommandLine line)
+    {
+        if (line.background())
+            return startJob(line);
+        if (line.pipeline())
+            return executePipeline(line.commands());
+
+        ParsedCommand parsed = toParsedCommand(line.commands().getFirst().words());
 
         if (isPathLike(parsed.command()))
         {
@@ -98,20 +194,20 @@ public final class REPL
                 if (Files.isDirectory(cmdPath))
                 {
                     ErrorPrinter.setLastError("Error: '" + parsed.command() + "' is a directory");
-                    return false;
+                    return CommandResult.Failure;
                 }
-                if (Files.exists(cmdPath) && Files.isRegularFile(cmdPath) && FileSystemUtils.isExecutable(cmdPath))
-                    return FileSystemUtils.executeExecutable(cmdPath, parsed.args());
+                if (Files.isRegularFile(cmdPath) && FileSystemUtils.canExecuteNow(cmdPath))
+                    return status(FileSystemUtils.executeExecutable(cmdPath, parsed.args()));
                 else
                 {
                     ErrorPrinter.setLastError("Error: '" + parsed.command() + "' not found or not executable");
-                    return false;
+                    return CommandResult.PathNotFound;
                 }
             }
             catch (Exception e)
             {
                 ErrorPrinter.setLastError("Error executing '" + parsed.command() + "': " + e.getMessage());
-                return false;
+                return CommandResult.UnknownError;
             }
         }
 
@@ -119,79 +215,88 @@ public final class REPL
         boolean isWindows = os.contains("win");
 
         String lookup = isWindows ? parsed.command().toUpperCase(Locale.ROOT) : parsed.command();
-        ReservedWords word = ReservedWords.fromString(lookup);
+        ReservedWords word = builtinFor(lookup);
         Function<List<String>, CommandResult> cmd = commands.get(word);
         if (cmd != null)
         {
-            CommandResult result = cmd.apply(parsed.args());
+            CommandResult result = runBuiltin(word, cmd, parsed.args());
             if (result != CommandResult.Success)
             {
                 ErrorPrinter.print(ErrorPrinter.getLastError().orElse(""));
-                return false;
+                return result;
             }
 
-            IO.print(OutputPrinter.getLastOutput().orElse(""));
-            ErrorPrinter.setLastError(null);
-            OutputPrinter.setLastOutput(null);
             ErrorPrinter.clearLastError();
-            OutputPrinter.clearLastOutput();
-            return true;
+            return CommandResult.Success;
         }
 
-        Optional<Path> pathCommand = findInPath(parsed.command());
+        Optional<Path> pathCommand = CommandHash.lookup(parsed.command());
         if (pathCommand.isPresent())
-            return FileSystemUtils.executeExecutable(pathCommand.get(), parsed.args());
+            return status(FileSystemUtils.executeExecutable(pathCommand.get(), parsed.args()));
 
         ErrorPrinter.setLastError("Error: '" + parsed.command() + "' not found or not executable");
         System.err.println(ErrorPrinter.getLastError().orElse(""));
-        return false;
+        return CommandResult.PathNotFound;
     }
 
-    private ParsedCommand parseArgs(String input)
+    /**
+     * The built‑in {@code name} selects.  A lower- or mixed-case name of a
+     * built‑in that {@linkplain ReservedWords#namesSystemTool() shadows a
+     * standard tool} selects the tool instead when it is on {@code PATH};
+     * on Windows names have already been upper-cased.
+     */
+    private static ReservedWords builtinFor(String name)
     {
-        String[] parts = input.trim().split("\\s+", 2);
-        String cmd = parts[0];
-        String argsStr = parts.length > 1 ? parts[1] : "";
-
-        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
-        boolean isWindows = os.contains("win");
-
-        if (isWindows && !isPathLike(cmd))
-            cmd = cmd.toUpperCase(Locale.ROOT);
+        ReservedWords word = ReservedWords.fromString(name);
+        if (word.namesSystemTool() && !name.equals(name.toUpperCase(Locale.ROOT)) && CommandHash.lookup(name).isPresent())
+            return ReservedWords.UNKNOWN;
+        return word;
+    }
 
-        List<String> args = splitQuotedArgs(argsStr);
-        return new ParsedCommand(cmd, args);
+    private static CommandResult status(boolean succeeded)
+    {
+        return succeeded ? CommandResult.Success : CommandResult.Failure;
     }
 
+    /**
+     * Starts {@code line} as a background job and reports its number.  The
+     * job runs the line exactly as the foreground would, on its own thread.
+     */
+    private CommandResult startJob(CommandLine line)
+    {
+        if (RemoteSession.active())
+        {
+            ErrorPrinter.setLastError("Error: Background jobs are not available to daemon clients");
+            ErrorPrinter.print(ErrorPrinter.getLastError().orElse(""));
+            return CommandResult.Failure;
+        }
+        CommandLine foreground = line.inForeground();
+        Job job = JobTable.start(line.text(), () -> run(foreground) == CommandResult.Success);
+        System.out.println("[" + job.id() + "] " + line.text());
+        return CommandResult.Success;
+    }
 
-    private List<String> splitQuotedArgs(String inputStr)
+    /**
+     * Runs a built‑in with a fresh {@link OutputSink} on the terminal.
+     * Legacy commands that still report through {@link OutputPrinter} have
+     * that string drained into the sink once they return.
+     */
+    private static CommandResult runBuiltin(ReservedWords word, Function<List<String>, CommandResult> fn, List<String> args)
     {
-        List<String> tokens = new ArrayList<>();
-        StringBuilder current = new StringBuilder();
-        boolean inQuotes = false;
-        for (char c : inputStr.toCharArray())
+        try (OutputSink sink = OutputSink.toTerminal())
         {
-            if (c == '"')
-            {
-                inQuotes = !inQuotes;
-                continue;
-            }
-            if (Character.isWhitespace(c) && !inQuotes)
-            {
-                if (!current.isEmpty())
-                {
-                    tokens.add(current.toString());
-                    current.setLength(0);
-                }
-            }
-            else
-                current.append(c);
+            StreamCommand streamCommand = streamCommands.get(word);
+            if (streamCommand != null)
+                return streamCommand.execute(args, StreamCommand.NO_INPUT, sink, System.err);
+            OutputPrinter.clearLastOutput();
+            CommandResult result = fn.apply(args);
+            OutputPrinter.getLastOutput().ifPresent(sink::print);
+            OutputPrinter.clearLastOutput();
+            return result;
         }
-        if (!current.isEmpty())
-            tokens.add(current.toString());
-        return tokens;
     }
 
+
     private boolean isPathLike(String cmd)
     {
         if (cmd == null || cmd.isEmpty())
@@ -210,256 +315,105 @@ public final class REPL
         return Collections.unmodifiableMap(commands);
     }
 
-    private Optional<Path> findInPath(String command)
-    {
-        String pathEnv = System.getenv("PATH");
-        if (pathEnv == null)
-            return Optional.empty();
-        String[] pathDirs = pathEnv.split(File.pathSeparator);
-        boolean isWindows = System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("win");
-        for (String dir : pathDirs)
-        {
-            Path candidate = Paths.get(dir, command);
-            if (Files.exists(candidate) && FileSystemUtils.isExecutable(candidate))
-                return Optional.of(candidate);
-            if (isWindows)
-            {
-                if (!command.matches(".*\\.[a-zA-Z0-9]+$"))
-                {
-                    String[] extensions = { ".exe", ".com", ".bat", ".cmd" };
-                    for (String ext : extensions)
-                    {
-                        Path candidateWithExt = Paths.get(dir, command + ext);
-                        if (Files.exists(candidateWithExt) && FileSystemUtils.isExecutable(candidateWithExt))
-                            return Optional.of(candidateWithExt);
-                    }
-                }
-            }
-        }
-        return Optional.empty();
-    }
-
-    private boolean executePipeline(String commandLine)
+    private CommandResult executePipeline(List<SimpleCommand> commands)
     {
         try
         {
-            List<String> segments = getStrings(commandLine);
-            if (segments.isEmpty())
-                return true;
-
-            String first = segments.getFirst();
-            Path inputFile = null;
-            {
-                List<String> tokens = splitQuotedArgs(first);
-                List<String> cleaned = new ArrayList<>();
-                for (int i = 0; i < tokens.size(); i++)
-                {
-                    String token = tokens.get(i);
-                    if (token.equals("<") && i + 1 < tokens.size())
-                    {
-                        String fname = tokens.get(i + 1);
-                        inputFile = CurrentDirectory.get().resolve(fname).normalize();
-                        i++;
-                    }
-                    else
-                        cleaned.add(token);
-                }
-                segments.set(0, String.join(" ", cleaned));
-            }
-
-            String last = segments.getLast();
-            Path outputFile = null;
-            boolean append = false;
-            {
-                List<String> tokens = splitQuotedArgs(last);
-                List<String> cleaned = new ArrayList<>();
-                for (int i = 0; i < tokens.size(); i++)
-                {
-                    String token = tokens.get(i);
-                    if ((token.equals(">") || token.equals(">>")) && i + 1 < tokens.size())
-                    {
-                        outputFile = CurrentDirectory.get().resolve(tokens.get(i + 1)).normalize();
-                        append = token.equals(">>");
-                        i++;
-                    }
-                    else
-                        cleaned.add(token);
-                }
-                segments.set(segments.size() - 1, String.join(" ", cleaned));
-            }
-
-            byte[] data;
-            if (inputFile != null)
-                data = Files.readAllBytes(inputFile);
-            else
-                data = new byte[0];
-
-            for (String segCmd : segments)
+            List<PipelineStage> stages = new ArrayList<>(commands.size());
+            for (SimpleCommand command : commands)
             {
-                String seg = segCmd.trim();
-                if (seg.isEmpty())
+                if (command.words().isEmpty())
                     continue;
-
-                ParsedCommand pc = parseArgs(seg);
-                byte[] output;
-
-                if (!isPathLike(pc.command()))
-                {
-                    String cmdStr = pc.command().toUpperCase(Locale.ROOT);
-                    Function<List<String>, CommandResult> fn = commands.get(ReservedWords.fromString(cmdStr));
-                    if (fn != null)
-                    {
-                        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-                        PrintStream originalOut = System.out;
-                        PrintStream ps = new PrintStream(buffer);
-                        System.setOut(ps);
-                        CommandResult res;
-                        try
-                        {
-                            res = fn.apply(pc.args());
-                        }
-                        finally
-                        {
-                            ps.flush();
-                            System.setOut(originalOut);
-                        }
-                        output = buffer.toByteArray();
-
-                        String op = OutputPrinter.getLastOutput().orElse("");
-                        if (!op.isEmpty())
-                        {
-                            byte[] opBytes = op.getBytes();
-                            byte[] combined = new byte[output.length + opBytes.length];
-                            System.arraycopy(output, 0, combined, 0, output.length);
-                            System.arraycopy(opBytes, 0, combined, output.length, opBytes.length);
-                            output = combined;
-                        }
-                        OutputPrinter.clearLastOutput();
-
-                        if (res != CommandResult.Success)
-                            return false;
-                    }
-                    else
-                    {
-                        Optional<Path> pathCmd = findInPath(pc.command());
-                        if (pathCmd.isPresent())
-                            output = runExternal(pathCmd.get().toString(), pc.args(), data);
-                        else
-                            output = runExternal(pc.command(), pc.args(), data);
-                    }
-                }
-                else
-                {
-                    Path abs = CurrentDirectory.get().resolve(pc.command()).normalize();
-                    output = runExternal(abs.toString(), pc.args(), data);
-                }
-
-                data = output;
+                Redirections redirections = Redirections.resolve(command.redirections(), CurrentDirectory.get());
+                stages.add(createStage(toParsedCommand(command.words()), redirections));
             }
+            if (stages.isEmpty())
+                return CommandResult.Success;
 
-            if (outputFile != null)
+            if (stages.stream().allMatch(ExternalStage.class::isInstance))
             {
-                if (append)
-                    Files.write(outputFile, data, Files.exists(outputFile) ? StandardOpenOption.APPEND : StandardOpenOption.CREATE);
-                else
-                    Files.write(outputFile, data);
+                List<ExternalStage> external = stages.stream().map(ExternalStage.class::cast).toList();
+                if (NativePipeline.supports(external))
+                    return NativePipeline.run(external);
             }
-            else
-                if (data.length > 0)
-                    IO.print(new String(data, Charset.defaultCharset()));
-
 
-            return true;
+            return new Pipeline(stages).run(StreamCommand.NO_INPUT, System.out, System.err);
         }
         catch (IOException e)
         {
             ErrorPrinter.setLastError("Pipeline execution failed: " + e.getMessage());
-            return false;
+            return CommandResult.Failure;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            ErrorPrinter.setLastError("Pipeline interrupted");
+            return CommandResult.Failure;
         }
     }
 
-    private static List<String> getStrings(String commandLine)
+    private ParsedCommand toParsedCommand(List<String> words)
     {
-        List<String> segments = new ArrayList<>();
-        StringBuilder seg = new StringBuilder();
-        boolean inQuotes = false;
-        for (char c : commandLine.toCharArray())
+        String cmd = words.getFirst();
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        if (os.contains("win") && !isPathLike(cmd))
+            cmd = cmd.toUpperCase(Locale.ROOT);
+        return new ParsedCommand(cmd, words.subList(1, words.size()));
+    }
+
+    private PipelineStage createStage(ParsedCommand pc, Redirections redirections)
+    {
+        if (isPathLike(pc.command()))
+            return new ExternalStage(CurrentDirectory.get().resolve(pc.command()).normalize().toString(), pc.args(), CurrentDirectory.get(), redirections);
+        ReservedWords word = builtinFor(pc.command());
+        PipelineStage stage;
+        StreamCommand streamCommand = streamCommands.get(word);
+        Function<List<String>, CommandResult> fn = commands.get(word);
+        if (streamCommand != null)
+            stage = new StreamStage(streamCommand, pc.args());
+        else if (fn != null)
+            stage = builtinStage(fn, pc.args());
+        else
         {
-            if (c == '"')
-            {
-                inQuotes = !inQuotes;
-                seg.append(c);
-                continue;
-            }
-            if (c == '|' && !inQuotes)
-            {
-                segments.add(seg.toString().trim());
-                seg.setLength(0);
-            }
-            else
-                seg.append(c);
+            String executable = CommandHash.lookup(pc.command()).map(Path::toString).orElse(pc.command());
+            return new ExternalStage(executable, pc.args(), CurrentDirectory.get(), redirections);
         }
-        segments.add(seg.toString().trim());
-        return segments;
+        return redirections.isEmpty() ? stage : new RedirectedStage(stage, redirections);
     }
 
-    private byte[] runExternal(String command, List<String> args, byte[] input)
+    /**
+     * Builtins without a {@link StreamCommand} form still report through
+     * {@code System.out} and {@link OutputPrinter}, both process-wide, so
+     * their capture is serialised.  The other stages of the pipeline keep
+     * running meanwhile.
+     */
+    private static PipelineStage builtinStage(Function<List<String>, CommandResult> fn, List<String> args)
     {
-        try
+        return (_, out, err) ->
         {
-            List<String> cmdLine = new ArrayList<>();
-            cmdLine.add(command);
-            cmdLine.addAll(args);
-            ProcessBuilder pb = new ProcessBuilder(cmdLine);
-            pb.directory(CurrentDirectory.get().toFile());
-            pb.redirectError(ProcessBuilder.Redirect.PIPE);
-            Process process = pb.start();
-            if (input != null && input.length > 0)
-            {
-                OutputStream os = process.getOutputStream();
-                os.write(input);
-                os.close();
-            }
-            else
-                process.getOutputStream().close();
             ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-            Thread outThread = new Thread(() ->
+            CommandResult res;
+            synchronized (captureLock)
             {
+                PrintStream originalOut = System.out;
+                PrintStream ps = new PrintStream(buffer);
+                System.setOut(ps);
                 try
                 {
-                    InputStream is = process.getInputStream();
-                    byte[] buf = new byte[1024];
-                    int len;
-                    while ((len = is.read(buf)) != -1)
-                        buffer.write(buf, 0, len);
+                    res = fn.apply(args);
                 }
-                catch (IOException _) {}
-            });
-            outThread.start();
-            Thread errThread = new Thread(() ->
-            {
-                try
+                finally
                 {
-                    InputStream es = process.getErrorStream();
-                    byte[] buf2 = new byte[1024];
-                    int len2;
-                    while ((len2 = es.read(buf2)) != -1)
-                        System.err.write(buf2, 0, len2);
+                    ps.flush();
+                    System.setOut(originalOut);
                 }
-                catch (IOException _) {}
-            });
-            errThread.start();
-            int exitCode = process.waitFor();
-            outThread.join();
-            errThread.join();
-            if (exitCode != 0)
-                ErrorPrinter.setLastError("Error: external command exited with code " + exitCode);
-            return buffer.toByteArray();
-        }
-        catch (Exception e)
-        {
-            ErrorPrinter.setLastError("Execution failed: " + e.getMessage());
-            return new byte[0];
-        }
+                buffer.writeBytes(OutputPrinter.getLastOutput().orElse("").getBytes());
+                OutputPrinter.clearLastOutput();
+            }
+            buffer.writeTo(out);
+            if (res != CommandResult.Success)
+                err.write((ErrorPrinter.getLastError().orElse("") + System.lineSeparator()).getBytes());
+            return res;
+        };
     }
 }
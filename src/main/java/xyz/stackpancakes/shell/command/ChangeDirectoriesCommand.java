@@ -51,15 +51,8 @@ public final class ChangeDirectoriesCommand implements Command
             return resolveParentDirectory(currentDir);
         else if (targetPath.equals(".") || targetPath.equals("./"))
             return currentDir;
-        else if (targetPath.equals("~"))
-            return Paths.get(FileSystemUtils.getHomeDirectory()).toRealPath();
-        else if (targetPath.startsWith("~/"))
-        {
-            Path homePath = Paths.get(FileSystemUtils.getHomeDirectory());
-            return homePath.resolve(targetPath.substring(2)).toRealPath();
-        }
         else
-            return resolveNormalDirectory(currentDir, targetPath);
+            return resolveNormalDirectory(targetPath);
     }
     private Path resolveParentDirectory(Path currentDir) throws IOException
     {
@@ -68,12 +61,9 @@ public final class ChangeDirectoriesCommand implements Command
             throw new IOException("Already at root directory");
         return parent.toRealPath();
     }
-    private Path resolveNormalDirectory(Path currentDir, String targetPath) throws IOException
+    private Path resolveNormalDirectory(String targetPath) throws IOException
     {
-        Path target = Paths.get(targetPath);
-        if (target.isAbsolute())
-            return target.toRealPath();
-        Path resolved = currentDir.resolve(target).normalize();
+        Path resolved = CurrentDirectory.resolve(targetPath);
         if (!Files.exists(resolved))
             throw new IOException("The system cannot find the path specified: " + targetPath);
         if (!Files.isDirectory(resolved))
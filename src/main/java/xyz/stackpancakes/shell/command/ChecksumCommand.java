@@ -0,0 +1,373 @@
+package xyz.stackpancakes.shell.command;
+
+import xyz.stackpancakes.shell.job.JobTable;
+import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.CurrentDirectory;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.util.FileSystemUtils;
+import xyz.stackpancakes.shell.util.ParallelTreeWalker;
+import xyz.stackpancakes.shell.util.ProgressMeter;
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * Computes or verifies checksums of files and directory trees.  Files are
+ * hashed in parallel, one file per worker at a time; files of
+ * {@link GrepCommand#MAP_THRESHOLD} bytes or more are read through mapped
+ * regions so their contents never pass through the heap.  Results are
+ * printed sorted by path in the {@code <hex>  <path>} format of
+ * {@code sha256sum}, which {@code -c} reads back.  Symbolic links named on
+ * the command line are hashed as their targets; an operand that is neither
+ * a regular file nor a directory is reported as a failure.  The amount hashed and
+ * the throughput are reported on the error stream.
+ */
+public final class ChecksumCommand implements StreamCommand
+{
+    private static final long MAP_REGION = 1L << 26;
+    private static final int READ_BUFFER = 64 * 1024;
+    private static final Pattern MANIFEST_LINE = Pattern.compile("([0-9a-fA-F]+) [ *](.+)");
+    private static final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(READ_BUFFER));
+    private static final String USAGE = "CHECKSUM [-a sha256|sha1|md5|crc32c] [-j <n>] (<path>... | -c <manifest>)";
+
+    enum Algorithm
+    {
+        SHA256("SHA-256", 64),
+        SHA1("SHA-1", 40),
+        MD5("MD5", 32),
+        CRC32C("CRC32C", 8);
+
+        private final String standardName;
+        private final int hexLength;
+
+        Algorithm(String standardName, int hexLength)
+        {
+            this.standardName = standardName;
+            this.hexLength = hexLength;
+        }
+
+        static Algorithm fromName(String name)
+        {
+            String normalised = name.replace("-", "").toUpperCase(Locale.ROOT);
+            for (Algorithm algorithm : values())
+                if (algorithm.name().equals(normalised))
+                    return algorithm;
+            return null;
+        }
+
+        static Algorithm fromHexLength(int length)
+        {
+            for (Algorithm algorithm : values())
+                if (algorithm.hexLength == length)
+                    return algorithm;
+            return null;
+        }
+
+        Hasher newHasher()
+        {
+            if (this == CRC32C)
+            {
+                CRC32C crc = new CRC32C();
+                return new Hasher()
+                {
+                    @Override
+                    public void update(ByteBuffer data)
+                    {
+                        crc.update(data);
+                    }
+
+                    @Override
+                    public String hex()
+                    {
+                        return String.format("%08x", crc.getValue());
+                    }
+                };
+            }
+            try
+            {
+                MessageDigest digest = MessageDigest.getInstance(standardName);
+                return new Hasher()
+                {
+                    @Override
+                    public void update(ByteBuffer data)
+                    {
+                        digest.update(data);
+                    }
+
+                    @Override
+                    public String hex()
+                    {
+                        return HexFormat.of().formatHex(digest.digest());
+                    }
+                };
+            }
+            catch (NoSuchAlgorithmException e)
+            {
+                throw new IllegalStateException(standardName + " is not available", e);
+            }
+        }
+    }
+
+    private interface Hasher
+    {
+        void update(ByteBuffer data);
+
+        String hex();
+    }
+
+    private record ManifestEntry(String expected, String path) {}
+
+    @Override
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
+    {
+        Algorithm algorithm = null;
+        String manifest = null;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        List<String> operands = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++)
+        {
+            String arg = args.get(i);
+            switch (arg)
+            {
+                case "-a", "-c", "-j" ->
+                {
+                    if (i + 1 >= args.size())
+                        return HeadCommand.invalidUsage(USAGE);
+                    String value = args.get(++i);
+                    if (arg.equals("-a") && (algorithm = Algorithm.fromName(value)) == null)
+                        return HeadCommand.invalidUsage(USAGE);
+                    if (arg.equals("-c"))
+                        manifest = value;
+                    if (arg.equals("-j") && (jobs = (int) HeadCommand.parseCount(value)) < 1)
+                        return HeadCommand.invalidUsage(USAGE);
+                }
+                default -> operands.add(arg);
+            }
+        }
+        if ((manifest == null) == operands.isEmpty())
+            return HeadCommand.invalidUsage(USAGE);
+        List<String> required = manifest != null ? List.of(manifest) : operands;
+        for (String path : required)
+            if (!Files.exists(CurrentDirectory.resolve(path)))
+            {
+                ErrorPrinter.setLastError("The system cannot find the path specified: " + path);
+                return CommandResult.PathNotFound;
+            }
+        try
+        {
+            if (manifest != null)
+                return verify(CurrentDirectory.resolve(manifest), algorithm, jobs, out, err);
+            return compute(operands, algorithm == null ? Algorithm.SHA256 : algorithm, jobs, out, err);
+        }
+        catch (IOException e)
+        {
+            ErrorPrinter.setLastError(Ansi.withForeground("Error", Ansi.Foreground.RED) + ": " + e.getMessage());
+            return CommandResult.Failure;
+        }
+    }
+
+    private static CommandResult compute(List<String> operands, Algorithm algorithm, int jobs, PrintStream out, PrintStream err)
+    {
+        Map<String, String> results = new ConcurrentSkipListMap<>();
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        try (ProgressMeter progress = new ProgressMeter("Hashed", err, true))
+        {
+            for (String operand : operands)
+            {
+                Path root = CurrentDirectory.resolve(operand);
+                Path shown = Paths.get(operand);
+                ParallelTreeWalker.walk(root, Integer.MAX_VALUE, jobs, new ParallelTreeWalker.Visitor()
+                {
+                    @Override
+                    public void visit(ParallelTreeWalker.Entry entry)
+                    {
+                        if (!entry.attributes().isRegularFile())
+                        {
+                            if (entry.depth() == 0 && !entry.attributes().isDirectory())
+                                failures.add(entry.path() + ": Not a regular file");
+                            return;
+                        }
+                        try
+                        {
+                            String hex = hash(entry.path(), algorithm, progress);
+                            results.put(shown.resolve(root.relativize(entry.path())).toString(), hex);
+                        }
+                        catch (IOException e)
+                        {
+                            failures.add(FileSystemUtils.describeFailure(entry.path(), e));
+                        }
+                    }
+
+                    @Override
+                    public void failed(Path path, IOException e)
+                    {
+                        failures.add(FileSystemUtils.describeFailure(path, e));
+                    }
+                });
+            }
+            results.forEach((path, hex) -> out.println(hex + "  " + path));
+            out.flush();
+        }
+        if (!failures.isEmpty())
+        {
+            ErrorPrinter.setLastError(FileSystemUtils.summariseFailures(failures, "hashed"));
+            return CommandResult.Failure;
+        }
+        return CommandResult.Success;
+    }
+
+    private static CommandResult verify(Path manifest, Algorithm algorithm, int jobs, PrintStream out, PrintStream err) throws IOException
+    {
+        List<ManifestEntry> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8))
+        {
+            if (line.isBlank())
+                continue;
+            Matcher matcher = MANIFEST_LINE.matcher(line);
+            if (!matcher.matches())
+                throw new IOException("Malformed manifest line: " + line);
+            entries.add(new ManifestEntry(matcher.group(1).toLowerCase(Locale.ROOT), matcher.group(2)));
+        }
+        if (entries.isEmpty())
+            return CommandResult.Success;
+        if (algorithm == null)
+            algorithm = Algorithm.fromHexLength(entries.getFirst().expected().length());
+        if (algorithm == null)
+            throw new IOException("Cannot tell the checksum algorithm from the manifest; use -a");
+
+        String[] verdicts = new String[entries.size()];
+        BooleanSupplier cancelled = JobTable.cancellation();
+        try (ProgressMeter progress = new ProgressMeter("Verified", err, true);
+             ForkJoinPool pool = new ForkJoinPool(jobs))
+        {
+            pool.invoke(new VerifyTask(entries, 0, entries.size(), algorithm, verdicts, progress, cancelled));
+        }
+        if (cancelled.getAsBoolean())
+        {
+            ErrorPrinter.setLastError("CHECKSUM: interrupted");
+            return CommandResult.Failure;
+        }
+        long mismatches = 0;
+        for (int i = 0; i < verdicts.length; i++)
+        {
+            out.println(entries.get(i).path() + ": " + verdicts[i]);
+            if (!verdicts[i].equals("OK"))
+                mismatches++;
+        }
+        out.flush();
+        if (mismatches > 0)
+        {
+            ErrorPrinter.setLastError(mismatches + " of " + verdicts.length + " files did not match the manifest");
+            return CommandResult.Failure;
+        }
+        return CommandResult.Success;
+    }
+
+    static String hash(Path file, Algorithm algorithm, ProgressMeter progress) throws IOException
+    {
+        Hasher hasher = algorithm.newHasher();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size >= GrepCommand.MAP_THRESHOLD)
+            {
+                for (long position = 0; position < size; )
+                {
+                    long length = Math.min(MAP_REGION, size - position);
+                    hasher.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                    position += length;
+                    progress.add(0, length);
+                }
+            }
+            else
+            {
+                ByteBuffer buffer = buffers.get().clear();
+                while (channel.read(buffer) > 0)
+                {
+                    progress.add(0, buffer.flip().remaining());
+                    hasher.update(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+        progress.add(1, 0);
+        return hasher.hex();
+    }
+
+    /**
+     * Checks a slice of the manifest, splitting it in halves until a slice
+     * is no larger than {@link ParallelTreeWalker#ENTRIES_PER_TASK}.
+     */
+    private static final class VerifyTask extends RecursiveAction
+    {
+        private final List<ManifestEntry> entries;
+        private final int from;
+        private final int to;
+        private final Algorithm algorithm;
+        private final String[] verdicts;
+        private final ProgressMeter progress;
+        private final BooleanSupplier cancelled;
+
+        VerifyTask(List<ManifestEntry> entries, int from, int to, Algorithm algorithm, String[] verdicts, ProgressMeter progress, BooleanSupplier cancelled)
+        {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+            this.algorithm = algorithm;
+            this.verdicts = verdicts;
+            this.progress = progress;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > ParallelTreeWalker.ENTRIES_PER_TASK)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new VerifyTask(entries, from, middle, algorithm, verdicts, progress, cancelled),
+                        new VerifyTask(entries, middle, to, algorithm, verdicts, progress, cancelled));
+                return;
+            }
+            for (int i = from; i < to && !cancelled.getAsBoolean(); i++)
+            {
+                ManifestEntry entry = entries.get(i);
+                try
+                {
+                    String actual = hash(CurrentDirectory.resolve(entry.path()), algorithm, progress);
+                    verdicts[i] = actual.equals(entry.expected()) ? "OK" : "FAILED";
+                }
+                catch (IOException e)
+                {
+                    verdicts[i] = "FAILED open or read";
+                }
+            }
+        }
+    }
+}
@@ -1,31 +1,55 @@
 package xyz.stackpancakes.shell.command;
 
+import xyz.stackpancakes.shell.job.JobTable;
 import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.CurrentDirectory;
 import xyz.stackpancakes.shell.util.ErrorPrinter;
-import xyz.stackpancakes.shell.core.Command;
+import xyz.stackpancakes.shell.util.FileSystemUtils;
+import xyz.stackpancakes.shell.util.ProgressMeter;
 import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
 
 /**
  * Copies files and directories.  Supports a recursive flag ({@code -r} or
- * {@code --recursive}) to copy directories and their contents.
+ * {@code --recursive}) to copy directories and their contents; subtrees are
+ * then copied in parallel on a work-stealing pool whose size can be set
+ * with {@code -j} / {@code --jobs}.  Every file goes through
+ * {@link Files#copy}, which keeps its permissions and lets the JDK copy the
+ * data inside the kernel where the platform allows.  A failed entry does not
+ * stop the copy; failures are summarised at the end.
  */
-record CopyArgs(String source, String destination, boolean recursive) {}
+record CopyArgs(String source, String destination, boolean recursive, int jobs) {}
 
-public final class CopyCommand implements Command
+public final class CopyCommand implements StreamCommand
 {
+    private static final int FILES_PER_TASK = 64;
+    private static final String USAGE = "COPY [--RECURSIVE | -r] [--JOBS <n> | -j <n>] <source> <destination>";
+
     @Override
-    public CommandResult execute(List<String> args)
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
     {
         try
         {
             CopyArgs parsed = parseArguments(args);
-            return performCopy(parsed);
+            return performCopy(parsed, err);
         }
         catch (InvalidArgumentsException e)
         {
@@ -41,67 +65,204 @@ public final class CopyCommand implements Command
     private CopyArgs parseArguments(List<String> args) throws InvalidArgumentsException
     {
         if (args == null)
-            throw new InvalidArgumentsException("COPY [--RECURSIVE | -r] <source> <destination>");
-        if (args.size() == 2)
-            return new CopyArgs(args.get(0), args.get(1), false);
-        if (args.size() == 3)
+            throw new InvalidArgumentsException(USAGE);
+        boolean recursive = false;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        List<String> operands = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++)
+        {
+            String arg = args.get(i);
+            if (isRecursiveOption(arg))
+                recursive = true;
+            else if (arg.equalsIgnoreCase("-j") || arg.equalsIgnoreCase("--jobs"))
+            {
+                if (i + 1 >= args.size())
+                    throw new InvalidArgumentsException(USAGE);
+                jobs = parseJobs(args.get(++i));
+            }
+            else if (arg.toLowerCase().startsWith("--jobs="))
+                jobs = parseJobs(arg.substring("--jobs=".length()));
+            else if (arg.startsWith("-") && operands.isEmpty() && arg.length() > 1)
+                throw new InvalidArgumentsException("Unknown option: " + arg);
+            else
+                operands.add(arg);
+        }
+        if (operands.size() != 2)
+            throw new InvalidArgumentsException(USAGE);
+        return new CopyArgs(operands.get(0), operands.get(1), recursive, jobs);
+    }
+    private int parseJobs(String value) throws InvalidArgumentsException
+    {
+        try
+        {
+            int jobs = Integer.parseInt(value);
+            if (jobs < 1)
+                throw new InvalidArgumentsException("Job count must be at least 1: " + value);
+            return jobs;
+        }
+        catch (NumberFormatException e)
         {
-            boolean recursive = isRecursiveOption(args.get(0));
-            if (!recursive)
-                throw new InvalidArgumentsException("Unknown option: " + args.get(0));
-            return new CopyArgs(args.get(1), args.get(2), true);
+            throw new InvalidArgumentsException("Invalid job count: " + value);
         }
-        throw new InvalidArgumentsException("COPY [--RECURSIVE | -r] <source> <destination>");
     }
     private boolean isRecursiveOption(String option)
     {
         return option.equalsIgnoreCase("-r") || option.equalsIgnoreCase("--recursive");
     }
-    private CommandResult performCopy(CopyArgs args) throws CopyFailedException
+    private CommandResult performCopy(CopyArgs args, PrintStream err) throws CopyFailedException
     {
-        Path source = Paths.get(args.source());
-        Path dest = Paths.get(args.destination());
+        Path source = CurrentDirectory.get().resolve(args.source()).normalize();
+        Path dest = CurrentDirectory.get().resolve(args.destination()).normalize();
         if (!Files.exists(source))
             throw new CopyFailedException("The system cannot find the path specified: " + source);
-        try
+        if (!args.recursive() || !Files.isDirectory(source))
         {
-            if (args.recursive())
+            try
+            {
+                copyFile(source, dest);
+                return CommandResult.Success;
+            }
+            catch (IOException e)
             {
-                try (Stream<Path> paths = Files.walk(source))
+                throw new CopyFailedException(e.getMessage());
+            }
+        }
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        BooleanSupplier cancelled = JobTable.cancellation();
+        try (ProgressMeter progress = new ProgressMeter("Copied", err);
+             ForkJoinPool pool = new ForkJoinPool(args.jobs()))
+        {
+            pool.invoke(new CopyDirectoryTask(source, dest, progress, failures, cancelled));
+        }
+        if (cancelled.getAsBoolean())
+            throw new CopyFailedException("COPY: interrupted");
+        if (!failures.isEmpty())
+            throw new CopyFailedException(FileSystemUtils.summariseFailures(failures, "copied"));
+        return CommandResult.Success;
+    }
+    static long copyFile(Path source, Path target) throws IOException
+    {
+        long size = Files.size(source);
+        Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        return size;
+    }
+
+    /**
+     * Copies one directory: its files in batches of
+     * {@link #FILES_PER_TASK}, its subdirectories as separate tasks, so even a
+     * single flat directory with many small files is spread over the pool.
+     * Only the entries of the directory being copied are held at a time.
+     */
+    private static final class CopyDirectoryTask extends RecursiveAction
+    {
+        private final Path source;
+        private final Path target;
+        private final ProgressMeter progress;
+        private final Queue<String> failures;
+        private final BooleanSupplier cancelled;
+
+        CopyDirectoryTask(Path source, Path target, ProgressMeter progress, Queue<String> failures, BooleanSupplier cancelled)
+        {
+            this.source = source;
+            this.target = target;
+            this.progress = progress;
+            this.failures = failures;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute()
+        {
+            try
+            {
+                Files.createDirectories(target);
+            }
+            catch (IOException e)
+            {
+                failures.add(FileSystemUtils.describeFailure(target, e));
+                return;
+            }
+            progress.add(1, 0);
+            List<RecursiveAction> subtasks = new ArrayList<>();
+            List<Path> batch = new ArrayList<>(FILES_PER_TASK);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(source))
+            {
+                for (Path entry : entries)
                 {
-                    paths.forEach(p ->
+                    if (cancelled.getAsBoolean())
+                        break;
+                    Path dest = target.resolve(entry.getFileName().toString());
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS))
+                        subtasks.add(new CopyDirectoryTask(entry, dest, progress, failures, cancelled));
+                    else
                     {
-                        try
+                        batch.add(entry);
+                        if (batch.size() == FILES_PER_TASK)
                         {
-                            Path target = dest.resolve(source.relativize(p));
-                            if (Files.isDirectory(p))
-                                Files.createDirectories(target);
-                            else
-                                Files.copy(p, target, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                            subtasks.add(new CopyFilesTask(List.copyOf(batch), target, progress, failures, cancelled));
+                            batch.clear();
                         }
-                        catch (Exception ex)
-                        {
-                            throw new RuntimeException(ex);
-                        }
-                    });
+                    }
                 }
             }
-            else
+            catch (IOException e)
             {
-                Files.copy(source, dest, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                failures.add(FileSystemUtils.describeFailure(source, e));
             }
+            catch (DirectoryIteratorException e)
+            {
+                failures.add(FileSystemUtils.describeFailure(source, e.getCause()));
+            }
+            if (!batch.isEmpty())
+                subtasks.add(new CopyFilesTask(List.copyOf(batch), target, progress, failures, cancelled));
+            invokeAll(subtasks);
         }
-        catch (RuntimeException re)
+    }
+
+    private static final class CopyFilesTask extends RecursiveAction
+    {
+        private final List<Path> files;
+        private final Path targetDir;
+        private final ProgressMeter progress;
+        private final Queue<String> failures;
+        private final BooleanSupplier cancelled;
+
+        CopyFilesTask(List<Path> files, Path targetDir, ProgressMeter progress, Queue<String> failures, BooleanSupplier cancelled)
         {
-            Throwable cause = re.getCause() != null ? re.getCause() : re;
-            throw new CopyFailedException(cause.getMessage());
+            this.files = files;
+            this.targetDir = targetDir;
+            this.progress = progress;
+            this.failures = failures;
+            this.cancelled = cancelled;
         }
-        catch (Exception e)
+
+        @Override
+        protected void compute()
         {
-            throw new CopyFailedException(e.getMessage());
+            for (Path file : files)
+            {
+                if (cancelled.getAsBoolean())
+                    break;
+                Path dest = targetDir.resolve(file.getFileName().toString());
+                try
+                {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isSymbolicLink())
+                    {
+                        Files.copy(file, dest, StandardCopyOption.REPLACE_EXISTING, LinkOption.NOFOLLOW_LINKS);
+                        progress.add(1, 0);
+                    }
+                    else
+                        progress.add(1, copyFile(file, dest));
+                }
+                catch (IOException e)
+                {
+                    failures.add(FileSystemUtils.describeFailure(file, e));
+                }
+            }
         }
-        return CommandResult.Success;
     }
+
     private static final class InvalidArgumentsException extends Exception
     {
         public InvalidArgumentsException(String message)
@@ -116,4 +277,4 @@ public final class CopyCommand implements Command
             super(message);
         }
     }
-}
\ No newline at end of file
+}
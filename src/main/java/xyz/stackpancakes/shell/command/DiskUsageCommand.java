@@ -0,0 +1,337 @@
+package xyz.stackpancakes.shell.command;
+
+import xyz.stackpancakes.shell.job.JobTable;
+import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.CurrentDirectory;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.util.FileSystemUtils;
+import xyz.stackpancakes.shell.util.ParallelTreeWalker;
+import xyz.stackpancakes.shell.util.ProgressMeter;
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Sums the apparent size of everything below one or more paths.  Each
+ * directory is totalled by its own fork/join task, its entries examined in
+ * batches of {@link ParallelTreeWalker#ENTRIES_PER_TASK} so that wide and
+ * deep trees are both spread over the pool.  A file with several hard links
+ * is counted once: the file keys of files whose link count is above one are
+ * remembered, and only those.
+ * <p>
+ * Totals are printed for directories down to {@code -d} levels (1 by
+ * default) and, with {@code --top N}, for the {@code N} heaviest
+ * directories at any depth.  Only directories that end up in either list
+ * are kept once their task has finished, so memory does not grow with the
+ * size of the tree.
+ */
+public final class DiskUsageCommand implements StreamCommand
+{
+    private static final String UNIX_ATTRIBUTES = "unix:size,nlink,fileKey,isDirectory";
+    private static final String USAGE = "DU [-d <depth>] [--top <n>] [-b] [-j <n>] [<path>...]";
+
+    private record Options(int depth, int top, boolean bytes, int jobs) {}
+    private record Usage(String path, long size) {}
+
+    @Override
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
+    {
+        int depth = 1;
+        int top = 0;
+        boolean bytes = false;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        List<String> operands = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++)
+        {
+            String arg = args.get(i);
+            switch (arg.toLowerCase(Locale.ROOT))
+            {
+                case "-b" -> bytes = true;
+                case "-d", "--top", "-j" ->
+                {
+                    long value = i + 1 < args.size() ? HeadCommand.parseCount(args.get(++i)) : -1;
+                    if (value < 0 || value > Integer.MAX_VALUE || (value == 0 && !arg.equals("-d")))
+                        return HeadCommand.invalidUsage(USAGE);
+                    switch (arg.toLowerCase(Locale.ROOT))
+                    {
+                        case "-d" -> depth = (int) value;
+                        case "--top" -> top = (int) value;
+                        default -> jobs = (int) value;
+                    }
+                }
+                default ->
+                {
+                    if (arg.length() > 1 && arg.startsWith("-"))
+                    {
+                        ErrorPrinter.setLastError(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": Unknown option: " + arg
+                                + "; use the system du for other options");
+                        return CommandResult.UnknownOption;
+                    }
+                    operands.add(arg);
+                }
+            }
+        }
+        if (operands.isEmpty())
+            operands.add(".");
+        for (String operand : operands)
+            if (!Files.exists(CurrentDirectory.resolve(operand), LinkOption.NOFOLLOW_LINKS))
+            {
+                ErrorPrinter.setLastError("The system cannot find the path specified: " + operand);
+                return CommandResult.PathNotFound;
+            }
+
+        Options options = new Options(depth, top, bytes, jobs);
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        BooleanSupplier cancelled = JobTable.cancellation();
+        for (String operand : operands)
+        {
+            summarise(operand, options, cancelled, out, err, failures);
+            if (cancelled.getAsBoolean())
+            {
+                ErrorPrinter.setLastError("DU: interrupted");
+                return CommandResult.Failure;
+            }
+        }
+        out.flush();
+        if (!failures.isEmpty())
+        {
+            ErrorPrinter.setLastError(FileSystemUtils.summariseFailures(failures, "measured"));
+            return CommandResult.Failure;
+        }
+        return CommandResult.Success;
+    }
+
+    private static void summarise(String operand, Options options, BooleanSupplier cancelled, PrintStream out, PrintStream err, Queue<String> failures)
+    {
+        Path root = CurrentDirectory.resolve(operand);
+        Tally tally = new Tally(root, Paths.get(operand), options, failures, unixAttributes(root), cancelled);
+        long total;
+        try (ProgressMeter progress = new ProgressMeter("Scanned", err);
+             ForkJoinPool pool = new ForkJoinPool(options.jobs()))
+        {
+            tally.progress = progress;
+            total = pool.invoke(new EntriesTask(List.of(root), 0, tally));
+        }
+        if (cancelled.getAsBoolean())
+            return;
+        tally.summary.forEach((path, size) -> printUsage(out, size, path, options));
+        if (!tally.summary.containsKey(tally.label(root)))
+            printUsage(out, total, tally.label(root), options);
+        if (options.top() > 0)
+        {
+            List<Usage> heaviest = new ArrayList<>(tally.heaviest);
+            heaviest.sort(Comparator.comparingLong(Usage::size).reversed());
+            out.println();
+            out.println("Largest directories under " + operand + ":");
+            heaviest.forEach(usage -> printUsage(out, usage.size(), usage.path(), options));
+        }
+    }
+
+    private static boolean unixAttributes(Path root)
+    {
+        return root.getFileSystem().supportedFileAttributeViews().contains("unix");
+    }
+
+    private static void printUsage(PrintStream out, long size, String path, Options options)
+    {
+        out.printf("%10s  %s%n", options.bytes() ? Long.toString(size) : ProgressMeter.formatBytes(size), path);
+    }
+
+    /**
+     * State shared by the tasks of one walk: the hard links seen so far, the
+     * per-directory totals that will be printed and the running top-N.
+     */
+    private static final class Tally
+    {
+        final Path root;
+        final Path shown;
+        final Options options;
+        final Queue<String> failures;
+        final boolean unix;
+        final BooleanSupplier cancelled;
+        final Set<Object> linkedFiles = ConcurrentHashMap.newKeySet();
+        final Map<String, Long> summary = new ConcurrentSkipListMap<>();
+        final PriorityQueue<Usage> heaviest = new PriorityQueue<>(Comparator.comparingLong(Usage::size));
+        ProgressMeter progress;
+
+        Tally(Path root, Path shown, Options options, Queue<String> failures, boolean unix, BooleanSupplier cancelled)
+        {
+            this.root = root;
+            this.shown = shown;
+            this.options = options;
+            this.failures = failures;
+            this.unix = unix;
+            this.cancelled = cancelled;
+        }
+
+        /**
+         * Returns the size to count for a non-directory entry: its size, or
+         * 0 when it is a further link to a file that was already counted.
+         */
+        long sizeOf(long size, long links, Object fileKey)
+        {
+            if (links > 1 && fileKey != null && !linkedFiles.add(fileKey))
+                return 0;
+            return size;
+        }
+
+        String label(Path path)
+        {
+            return shown.resolve(root.relativize(path)).toString();
+        }
+
+        void directoryDone(Path directory, int depth, long total)
+        {
+            String path = label(directory);
+            if (depth <= options.depth())
+                summary.put(path, total);
+            if (options.top() == 0 || depth == 0)
+                return;
+            synchronized (heaviest)
+            {
+                if (heaviest.size() < options.top())
+                    heaviest.add(new Usage(path, total));
+                else if (heaviest.peek().size() < total)
+                {
+                    heaviest.poll();
+                    heaviest.add(new Usage(path, total));
+                }
+            }
+        }
+    }
+
+    private static final class DirectoryTask extends RecursiveTask<Long>
+    {
+        private final Path directory;
+        private final int depth;
+        private final long ownSize;
+        private final Tally tally;
+
+        DirectoryTask(Path directory, int depth, long ownSize, Tally tally)
+        {
+            this.directory = directory;
+            this.depth = depth;
+            this.ownSize = ownSize;
+            this.tally = tally;
+        }
+
+        @Override
+        protected Long compute()
+        {
+            List<EntriesTask> batches = new ArrayList<>();
+            List<Path> batch = new ArrayList<>(ParallelTreeWalker.ENTRIES_PER_TASK);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory))
+            {
+                for (Path entry : entries)
+                {
+                    if (tally.cancelled.getAsBoolean())
+                        break;
+                    batch.add(entry);
+                    if (batch.size() == ParallelTreeWalker.ENTRIES_PER_TASK)
+                    {
+                        batches.add(new EntriesTask(List.copyOf(batch), depth + 1, tally));
+                        batch.clear();
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                tally.failures.add(FileSystemUtils.describeFailure(directory, e));
+            }
+            catch (DirectoryIteratorException e)
+            {
+                tally.failures.add(FileSystemUtils.describeFailure(directory, e.getCause()));
+            }
+            if (!batch.isEmpty())
+                batches.add(new EntriesTask(List.copyOf(batch), depth + 1, tally));
+            long total = ownSize;
+            for (EntriesTask task : invokeAll(batches))
+                total += task.join();
+            tally.directoryDone(directory, depth, total);
+            return total;
+        }
+    }
+
+    private static final class EntriesTask extends RecursiveTask<Long>
+    {
+        private final List<Path> paths;
+        private final int depth;
+        private final Tally tally;
+
+        EntriesTask(List<Path> paths, int depth, Tally tally)
+        {
+            this.paths = paths;
+            this.depth = depth;
+            this.tally = tally;
+        }
+
+        @Override
+        protected Long compute()
+        {
+            long total = 0;
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            for (Path path : paths)
+            {
+                if (tally.cancelled.getAsBoolean())
+                    break;
+                try
+                {
+                    long size;
+                    long links = 1;
+                    Object fileKey = null;
+                    boolean directory;
+                    if (tally.unix)
+                    {
+                        Map<String, Object> attributes = Files.readAttributes(path, UNIX_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                        size = (Long) attributes.get("size");
+                        links = ((Number) attributes.get("nlink")).longValue();
+                        fileKey = attributes.get("fileKey");
+                        directory = (Boolean) attributes.get("isDirectory");
+                    }
+                    else
+                    {
+                        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        size = attributes.size();
+                        directory = attributes.isDirectory();
+                    }
+                    tally.progress.add(1, directory ? 0 : size);
+                    if (directory)
+                        subdirectories.add(new DirectoryTask(path, depth, size, tally));
+                    else
+                        total += tally.sizeOf(size, links, fileKey);
+                }
+                catch (IOException e)
+                {
+                    tally.failures.add(FileSystemUtils.describeFailure(path, e));
+                }
+            }
+            for (DirectoryTask task : invokeAll(subdirectories))
+                total += task.join();
+            return total;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package xyz.stackpancakes.shell.command;
+
+import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.CurrentDirectory;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.util.FileSystemUtils;
+import xyz.stackpancakes.shell.util.ParallelTreeWalker;
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Lists the entries below one or more directories that satisfy every given
+ * test.  The trees are walked in parallel with {@link ParallelTreeWalker}
+ * and the tests only look at the name and the attributes the walker has
+ * already read, so no entry is examined twice.  Matches are written as they
+ * are found, in no particular order; output is flushed at least every
+ * {@link #FLUSH_INTERVAL_NANOS} so a slow walk still shows progress.
+ * Symbolic links named on the command line are followed and links below
+ * them are not, as with {@code find -H}.
+ * <p>
+ * Sizes are in bytes unless suffixed with {@code k}, {@code M} or
+ * {@code G}; {@code -mtime} counts whole days.  A leading {@code +} means
+ * more than, a leading {@code -} less than.
+ */
+public final class FindCommand implements StreamCommand
+{
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final Set<String> OPTIONS = Set.of("-name", "-iname", "-type", "-size", "-mtime", "-maxdepth", "-j");
+    private static final String USAGE = "FIND [<path>...] [-name <glob>] [-iname <glob>] [-type f|d|l] [-size [+|-]<n>[k|M|G]] [-mtime [+|-]<days>] [-maxdepth <n>] [-j <n>]";
+
+    @Override
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
+    {
+        List<String> roots = new ArrayList<>();
+        Predicate<ParallelTreeWalker.Entry> test = _ -> true;
+        int maxDepth = Integer.MAX_VALUE;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        try
+        {
+            int i = 0;
+            while (i < args.size() && !args.get(i).startsWith("-"))
+                roots.add(args.get(i++));
+            for (; i < args.size(); i++)
+            {
+                String option = args.get(i).toLowerCase(Locale.ROOT);
+                if (!OPTIONS.contains(option))
+                    throw unknownOption(args.get(i));
+                if (i + 1 >= args.size())
+                    throw new InvalidArgumentsException(USAGE);
+                String value = args.get(++i);
+                switch (option)
+                {
+                    case "-name" -> test = test.and(nameTest(value, false));
+                    case "-iname" -> test = test.and(nameTest(value, true));
+                    case "-type" -> test = test.and(typeTest(value));
+                    case "-size" -> test = test.and(comparison(value, FindCommand::parseSize, e -> e.attributes().size()));
+                    case "-mtime" -> test = test.and(comparison(value, Long::parseLong, FindCommand::ageInDays));
+                    case "-maxdepth" -> maxDepth = (int) Math.min(Integer.MAX_VALUE, parseCount(value));
+                    case "-j" -> jobs = (int) Math.max(1, Math.min(Integer.MAX_VALUE, parseCount(value)));
+                    default -> throw unknownOption(args.get(i - 1));
+                }
+            }
+        }
+        catch (InvalidArgumentsException e)
+        {
+            ErrorPrinter.setLastError(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": " + e.getMessage());
+            return CommandResult.InvalidSyntax;
+        }
+        if (roots.isEmpty())
+            roots.add(".");
+        for (String root : roots)
+            if (!Files.exists(CurrentDirectory.resolve(root), LinkOption.NOFOLLOW_LINKS))
+            {
+                ErrorPrinter.setLastError("The system cannot find the path specified: " + root);
+                return CommandResult.PathNotFound;
+            }
+
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        Results results = new Results(out);
+        for (String root : roots)
+        {
+            if (results.stopped())
+                break;
+            Path resolved = CurrentDirectory.resolve(root);
+            Path shown = Paths.get(root);
+            Predicate<ParallelTreeWalker.Entry> matches = test;
+            ParallelTreeWalker.walk(resolved, maxDepth, jobs, new ParallelTreeWalker.Visitor()
+            {
+                @Override
+                public void visit(ParallelTreeWalker.Entry entry)
+                {
+                    if (matches.test(entry))
+                        results.add(shown.resolve(resolved.relativize(entry.path())));
+                }
+
+                @Override
+                public void failed(Path path, IOException e)
+                {
+                    failures.add(FileSystemUtils.describeFailure(path, e));
+                }
+
+                @Override
+                public boolean stopped()
+                {
+                    return results.stopped();
+                }
+            });
+        }
+        out.flush();
+        if (!failures.isEmpty())
+        {
+            ErrorPrinter.setLastError(FileSystemUtils.summariseFailures(failures, "searched"));
+            return CommandResult.Failure;
+        }
+        return CommandResult.Success;
+    }
+
+    private static InvalidArgumentsException unknownOption(String option)
+    {
+        return new InvalidArgumentsException("Unknown option: " + option + "; use the system find for other options");
+    }
+
+    private static Predicate<ParallelTreeWalker.Entry> nameTest(String glob, boolean ignoreCase)
+    {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + (ignoreCase ? glob.toLowerCase(Locale.ROOT) : glob));
+        return entry ->
+        {
+            Path name = entry.path().getFileName();
+            if (name == null)
+                return false;
+            return matcher.matches(ignoreCase ? Paths.get(name.toString().toLowerCase(Locale.ROOT)) : name);
+        };
+    }
+
+    private static Predicate<ParallelTreeWalker.Entry> typeTest(String type) throws InvalidArgumentsException
+    {
+        return switch (type)
+        {
+            case "f" -> entry -> entry.attributes().isRegularFile();
+            case "d" -> entry -> entry.attributes().isDirectory();
+            case "l" -> entry -> entry.attributes().isSymbolicLink();
+            default -> throw new InvalidArgumentsException("Unknown type: " + type + " (expected f, d or l)");
+        };
+    }
+
+    private interface Parser
+    {
+        long parse(String value) throws NumberFormatException, InvalidArgumentsException;
+    }
+
+    /**
+     * Builds a test comparing a property of the entry with {@code value},
+     * which may carry a {@code +} or {@code -} prefix.
+     */
+    private static Predicate<ParallelTreeWalker.Entry> comparison(String value, Parser parser, ToLongFunction<ParallelTreeWalker.Entry> property)
+            throws InvalidArgumentsException
+    {
+        char sign = value.isEmpty() ? ' ' : value.charAt(0);
+        long limit;
+        try
+        {
+            limit = parser.parse(sign == '+' || sign == '-' ? value.substring(1) : value);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new InvalidArgumentsException("Invalid number: " + value);
+        }
+        return switch (sign)
+        {
+            case '+' -> entry -> property.applyAsLong(entry) > limit;
+            case '-' -> entry -> property.applyAsLong(entry) < limit;
+            default -> entry -> property.applyAsLong(entry) == limit;
+        };
+    }
+
+    private static long parseSize(String value) throws InvalidArgumentsException
+    {
+        if (value.isEmpty())
+            throw new InvalidArgumentsException("Invalid size: " + value);
+        int shift = switch (value.charAt(value.length() - 1))
+        {
+            case 'k', 'K' -> 10;
+            case 'M' -> 20;
+            case 'G' -> 30;
+            default -> 0;
+        };
+        String digits = shift == 0 ? value : value.substring(0, value.length() - 1);
+        return Long.parseLong(digits) << shift;
+    }
+
+    private static long ageInDays(ParallelTreeWalker.Entry entry)
+    {
+        BasicFileAttributes attributes = entry.attributes();
+        return TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis() - attributes.lastModifiedTime().toMillis());
+    }
+
+    private static long parseCount(String value) throws InvalidArgumentsException
+    {
+        long count = HeadCommand.parseCount(value);
+        if (count < 0)
+            throw new InvalidArgumentsException("Invalid number: " + value);
+        return count;
+    }
+
+    /**
+     * Serialises matches from the walker threads onto the output and
+     * notices when the reader has gone away.
+     */
+    private static final class Results
+    {
+        private final PrintStream out;
+        private long lastFlush = System.nanoTime();
+        private volatile boolean stopped;
+
+        Results(PrintStream out)
+        {
+            this.out = out;
+        }
+
+        synchronized void add(Path path)
+        {
+            out.println(path);
+            if (System.nanoTime() - lastFlush >= FLUSH_INTERVAL_NANOS)
+            {
+                stopped = out.checkError();
+                lastFlush = System.nanoTime();
+            }
+        }
+
+        boolean stopped()
+        {
+            return stopped;
+        }
+    }
+
+    private static final class InvalidArgumentsException extends Exception
+    {
+        public InvalidArgumentsException(String message)
+        {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package xyz.stackpancakes.shell.command;
+
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+import xyz.stackpancakes.shell.job.Job;
+import xyz.stackpancakes.shell.job.JobTable;
+import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.util.FileSystemUtils;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Waits for a background job, the most recent one by default, as if it
+ * had been started in the foreground: the prompt returns when it finishes
+ * and Ctrl+C stops it.  The job's output keeps going straight to the
+ * terminal; only the waiting moves to the foreground.
+ */
+public final class ForegroundCommand implements StreamCommand
+{
+    @Override
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
+    {
+        if (args.size() > 1)
+        {
+            ErrorPrinter.setLastError(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": FG [%<job>]");
+            return CommandResult.InvalidSyntax;
+        }
+        Optional<Job> found = JobTable.find(args.isEmpty() ? null : args.getFirst());
+        if (found.isEmpty())
+        {
+            ErrorPrinter.setLastError("FG: " + (args.isEmpty() ? "no current job" : args.getFirst() + ": no such job"));
+            return CommandResult.PathNotFound;
+        }
+        Job job = found.get();
+        out.println(job.command());
+        out.flush();
+
+        boolean succeeded;
+        FileSystemUtils.setInterruptibleThread(Thread.currentThread());
+        try
+        {
+            succeeded = job.await();
+        }
+        catch (InterruptedException _)
+        {
+            job.kill();
+            ErrorPrinter.setLastError("FG: [" + job.id() + "] interrupted");
+            return CommandResult.Failure;
+        }
+        finally
+        {
+            FileSystemUtils.setInterruptibleThread(null);
+        }
+        JobTable.remove(job);
+        if (!succeeded)
+        {
+            ErrorPrinter.setLastError("FG: [" + job.id() + "] " + job.state());
+            return CommandResult.Failure;
+        }
+        return CommandResult.Success;
+    }
+}
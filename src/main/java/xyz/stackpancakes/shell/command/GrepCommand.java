@@ -0,0 +1,510 @@
+package xyz.stackpancakes.shell.command;
+
+import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.CurrentDirectory;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.util.FileSystemUtils;
+import xyz.stackpancakes.shell.util.ParallelTreeWalker;
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Prints the lines of files, directory trees or the input that match a
+ * regular expression.  Directory trees are searched in parallel with
+ * {@link ParallelTreeWalker}; each file's output is collected and written in
+ * pieces of whole lines, at most {@link #FLUSH_SIZE} bytes each, so lines of
+ * different files never interleave within a piece.  Directories are always
+ * searched recursively, so {@code -r} is accepted but changes nothing.
+ * <p>
+ * Matching runs directly on the bytes: files of {@link #MAP_THRESHOLD}
+ * bytes or more are memory-mapped, and the pattern is applied to a
+ * {@link CharSequence} view that maps each byte to one char.  The pattern is
+ * converted the same way, so literal text, including non-ASCII text, matches
+ * its UTF-8 encoding, and only lines containing a hit are copied out.  As a
+ * consequence {@code .} and character classes see single bytes, and
+ * {@code -i} folds ASCII letters only.
+ */
+public final class GrepCommand implements StreamCommand
+{
+    static final long MAP_THRESHOLD = 1L << 20;
+    private static final int FLUSH_SIZE = 64 * 1024;
+    private static final long MAP_REGION = 1L << 28;
+    private static final int BINARY_PROBE = 8192;
+    private static final String STANDARD_INPUT = "(standard input)";
+    private static final String USAGE = "GREP [-i] [-v] [-n] [-c] [-l] [-F] [-r] [-j <n>] <pattern> [<path>...]";
+
+    private record Options(Pattern pattern, boolean invert, boolean lineNumbers, boolean countOnly, boolean filesOnly, int jobs) {}
+
+    @Override
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
+    {
+        boolean ignoreCase = false, invert = false, lineNumbers = false, countOnly = false, filesOnly = false, fixed = false;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        String pattern = null;
+        List<Path> paths = new ArrayList<>();
+        boolean options = true;
+        for (int i = 0; i < args.size(); i++)
+        {
+            String arg = args.get(i);
+            if (options && arg.equals("--"))
+                options = false;
+            else if (options && arg.equals("-j"))
+            {
+                jobs = i + 1 < args.size() ? (int) HeadCommand.parseCount(args.get(++i)) : -1;
+                if (jobs < 1)
+                    return HeadCommand.invalidUsage(USAGE);
+            }
+            else if (options && arg.length() > 1 && arg.startsWith("-") && arg.chars().skip(1).allMatch(c -> "ivnclFr".indexOf(c) >= 0))
+            {
+                for (char flag : arg.substring(1).toCharArray())
+                    switch (flag)
+                    {
+                        case 'i' -> ignoreCase = true;
+                        case 'v' -> invert = true;
+                        case 'n' -> lineNumbers = true;
+                        case 'c' -> countOnly = true;
+                        case 'l' -> filesOnly = true;
+                        case 'F' -> fixed = true;
+                        default -> {}
+                    }
+            }
+            else if (options && arg.length() > 1 && arg.startsWith("-"))
+            {
+                ErrorPrinter.setLastError(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": Unknown option: " + arg
+                        + "; use the system grep for other options");
+                return CommandResult.UnknownOption;
+            }
+            else if (pattern == null)
+                pattern = arg;
+            else
+                paths.add(CurrentDirectory.get().resolve(arg));
+        }
+        if (pattern == null)
+            return HeadCommand.invalidUsage(USAGE);
+
+        Options parsed;
+        try
+        {
+            String source = new String((fixed ? Pattern.quote(pattern) : pattern).getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+            int flags = Pattern.MULTILINE | Pattern.UNIX_LINES | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0);
+            parsed = new Options(Pattern.compile(source, flags), invert, lineNumbers, countOnly, filesOnly, jobs);
+        }
+        catch (PatternSyntaxException e)
+        {
+            ErrorPrinter.setLastError(Ansi.withForeground("Error", Ansi.Foreground.RED) + ": Invalid pattern: " + e.getDescription());
+            return CommandResult.InvalidSyntax;
+        }
+        for (Path path : paths)
+            if (!Files.exists(path))
+            {
+                ErrorPrinter.setLastError("The system cannot find the path specified: " + path);
+                return CommandResult.PathNotFound;
+            }
+
+        try
+        {
+            long matches;
+            Queue<String> failures = new ConcurrentLinkedQueue<>();
+            if (paths.isEmpty())
+                matches = new Search(parsed, STANDARD_INPUT, false, out).stream(in, out);
+            else
+                matches = searchPaths(parsed, paths, out, failures);
+            if (!failures.isEmpty())
+            {
+                ErrorPrinter.setLastError(FileSystemUtils.summariseFailures(failures, "searched"));
+                return CommandResult.Failure;
+            }
+            if (matches == 0)
+            {
+                ErrorPrinter.clearLastError();
+                return CommandResult.Failure;
+            }
+            return CommandResult.Success;
+        }
+        catch (IOException e)
+        {
+            ErrorPrinter.setLastError("Error reading input: " + e.getMessage());
+            return CommandResult.Failure;
+        }
+    }
+
+    private static long searchPaths(Options options, List<Path> paths, PrintStream out, Queue<String> failures)
+    {
+        boolean labelled = paths.size() > 1 || paths.stream().anyMatch(Files::isDirectory);
+        LongAdder matches = new LongAdder();
+        AtomicBoolean stopped = new AtomicBoolean();
+        ParallelTreeWalker.Visitor visitor = new ParallelTreeWalker.Visitor()
+        {
+            @Override
+            public void visit(ParallelTreeWalker.Entry entry)
+            {
+                if (!entry.attributes().isRegularFile())
+                    return;
+                FileOutput buffer = new FileOutput(out, stopped);
+                Search search = new Search(options, label(entry.path()), labelled, buffer);
+                try
+                {
+                    search.file(entry.path());
+                    buffer.drain();
+                }
+                catch (OutputClosedException _) {}
+                catch (IOException e)
+                {
+                    buffer.drain();
+                    failures.add(FileSystemUtils.describeFailure(entry.path(), e));
+                }
+                matches.add(search.matches);
+            }
+
+            @Override
+            public void failed(Path path, IOException e)
+            {
+                failures.add(FileSystemUtils.describeFailure(path, e));
+            }
+
+            @Override
+            public boolean stopped()
+            {
+                return stopped.get();
+            }
+        };
+        for (Path path : paths)
+        {
+            if (stopped.get())
+                break;
+            ParallelTreeWalker.walk(path, Integer.MAX_VALUE, options.jobs(), visitor);
+        }
+        return matches.sum();
+    }
+
+    private static String label(Path path)
+    {
+        Path base = CurrentDirectory.get();
+        return path.startsWith(base) && !path.equals(base) ? base.relativize(path).toString() : path.toString();
+    }
+
+    /**
+     * Collects the output of one file and hands it to the shared stream
+     * whenever a line ends past {@link #FLUSH_SIZE} bytes, so a file with
+     * millions of matching lines is never held in memory whole.  Once the
+     * stream reports an error the search of the file is abandoned.
+     */
+    private static final class FileOutput extends ByteArrayOutputStream
+    {
+        private final PrintStream out;
+        private final AtomicBoolean stopped;
+
+        FileOutput(PrintStream out, AtomicBoolean stopped)
+        {
+            super(FLUSH_SIZE / 16);
+            this.out = out;
+            this.stopped = stopped;
+        }
+
+        @Override
+        public void write(int b)
+        {
+            super.write(b);
+            if (b == '\n' && count >= FLUSH_SIZE && !drain())
+                throw new OutputClosedException();
+        }
+
+        /**
+         * Writes what has been collected to the shared stream and returns
+         * whether it is still accepting output.
+         */
+        boolean drain()
+        {
+            if (count > 0)
+            {
+                synchronized (out)
+                {
+                    out.write(buf, 0, count);
+                    if (out.checkError())
+                        stopped.set(true);
+                }
+                reset();
+            }
+            return !stopped.get();
+        }
+    }
+
+    private static final class OutputClosedException extends RuntimeException
+    {
+        OutputClosedException()
+        {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * The state of searching one file or stream: the current line number,
+     * the number of hits and whether the search can stop early.
+     */
+    private static final class Search
+    {
+        private final Options options;
+        private final Matcher matcher;
+        private final String name;
+        private final byte[] prefix;
+        private final OutputStream out;
+        private long line = 1;
+        private long matches;
+        private boolean binary;
+        private boolean done;
+
+        Search(Options options, String name, boolean labelled, OutputStream out)
+        {
+            this.options = options;
+            this.matcher = options.pattern().matcher("");
+            this.name = name;
+            this.prefix = labelled ? (name + ":").getBytes(StandardCharsets.UTF_8) : new byte[0];
+            this.out = out;
+        }
+
+        long file(Path file) throws IOException
+        {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+            {
+                long size = channel.size();
+                if (size < MAP_THRESHOLD)
+                {
+                    ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                    while (buffer.hasRemaining())
+                        if (channel.read(buffer) < 0)
+                            break;
+                    buffer.flip();
+                    binary = isBinary(buffer);
+                    scan(buffer);
+                }
+                else
+                    scanMapped(channel, size);
+            }
+            finish();
+            return matches;
+        }
+
+        /**
+         * Maps the file in regions of {@link #MAP_REGION} bytes, each cut
+         * back to its last newline so no line is split between regions.
+         */
+        private void scanMapped(FileChannel channel, long size) throws IOException
+        {
+            long position = 0;
+            while (position < size && !done)
+            {
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_REGION, size - position));
+                if (position == 0)
+                    binary = isBinary(region);
+                int limit = region.limit();
+                int last = lastNewline(region, limit);
+                if (position + limit < size && last >= 0)
+                    limit = last + 1;
+                scan(region.limit(limit));
+                position += limit;
+            }
+        }
+
+        /**
+         * Searches the input as it arrives, one block of complete lines at a
+         * time, so the search works as a filter in a pipeline.  The block
+         * grows only when a single line does not fit.
+         */
+        long stream(InputStream in, PrintStream sink) throws IOException
+        {
+            byte[] buf = new byte[ShowCommand.CHUNK_SIZE];
+            int filled = 0;
+            int n;
+            while (!done && (n = in.read(buf, filled, buf.length - filled)) != -1)
+            {
+                filled += n;
+                int last = lastNewline(ByteBuffer.wrap(buf), filled);
+                if (last < 0)
+                {
+                    if (filled == buf.length)
+                        buf = Arrays.copyOf(buf, buf.length * 2);
+                    continue;
+                }
+                scan(ByteBuffer.wrap(buf, 0, last + 1));
+                System.arraycopy(buf, last + 1, buf, 0, filled - last - 1);
+                filled -= last + 1;
+                if (sink.checkError())
+                    return matches;
+            }
+            if (!done && filled > 0)
+                scan(ByteBuffer.wrap(buf, 0, filled));
+            finish();
+            return matches;
+        }
+
+        private void scan(ByteBuffer buffer) throws IOException
+        {
+            int limit = buffer.limit();
+            matcher.reset(new ByteSequence(buffer));
+            int from = 0;
+            while (from < limit && !done)
+            {
+                int start;
+                int end;
+                if (options.invert())
+                {
+                    end = lineEnd(buffer, from, limit);
+                    matcher.region(from, end);
+                    if (matcher.find())
+                    {
+                        line++;
+                        from = end + 1;
+                        continue;
+                    }
+                    start = from;
+                }
+                else
+                {
+                    matcher.region(from, limit);
+                    if (!matcher.find())
+                    {
+                        if (options.lineNumbers())
+                            line += countNewlines(buffer, from, limit);
+                        return;
+                    }
+                    start = lineStart(buffer, from, matcher.start());
+                    end = lineEnd(buffer, matcher.start(), limit);
+                    if (options.lineNumbers())
+                        line += countNewlines(buffer, from, start);
+                }
+                hit(buffer, start, end);
+                line++;
+                from = end + 1;
+            }
+        }
+
+        private void hit(ByteBuffer buffer, int start, int end) throws IOException
+        {
+            matches++;
+            if (options.countOnly())
+                return;
+            if (binary || options.filesOnly())
+            {
+                done = true;
+                return;
+            }
+            out.write(prefix);
+            if (options.lineNumbers())
+                out.write((line + ":").getBytes(StandardCharsets.US_ASCII));
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            out.write(bytes);
+            out.write('\n');
+        }
+
+        private void finish() throws IOException
+        {
+            String summary = null;
+            if (options.filesOnly())
+                summary = matches > 0 ? name : null;
+            else if (options.countOnly())
+                summary = new String(prefix, StandardCharsets.UTF_8) + matches;
+            else if (binary && matches > 0)
+                summary = "Binary file " + name + " matches";
+            if (summary != null)
+                out.write((summary + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static boolean isBinary(ByteBuffer buffer)
+        {
+            for (int i = 0, n = Math.min(buffer.limit(), BINARY_PROBE); i < n; i++)
+                if (buffer.get(i) == 0)
+                    return true;
+            return false;
+        }
+
+        private static int lastNewline(ByteBuffer buffer, int limit)
+        {
+            for (int i = limit - 1; i >= 0; i--)
+                if (buffer.get(i) == '\n')
+                    return i;
+            return -1;
+        }
+
+        private static int lineStart(ByteBuffer buffer, int from, int index)
+        {
+            for (int i = index - 1; i >= from; i--)
+                if (buffer.get(i) == '\n')
+                    return i + 1;
+            return from;
+        }
+
+        private static int lineEnd(ByteBuffer buffer, int index, int limit)
+        {
+            for (int i = index; i < limit; i++)
+                if (buffer.get(i) == '\n')
+                    return i;
+            return limit;
+        }
+
+        private static long countNewlines(ByteBuffer buffer, int from, int to)
+        {
+            long count = 0;
+            for (int i = from; i < to; i++)
+                if (buffer.get(i) == '\n')
+                    count++;
+            return count;
+        }
+    }
+
+    /**
+     * Presents bytes as chars one-for-one, so a {@link Matcher} can run over
+     * a mapped file without decoding it.
+     */
+    private record ByteSequence(ByteBuffer buffer) implements CharSequence
+    {
+        @Override
+        public int length()
+        {
+            return buffer.limit();
+        }
+
+        @Override
+        public char charAt(int index)
+        {
+            return (char) (buffer.get(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end)
+        {
+            return new ByteSequence(buffer.slice(start, end - start));
+        }
+
+        @Override
+        public String toString()
+        {
+            byte[] bytes = new byte[buffer.limit()];
+            buffer.get(0, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package xyz.stackpancakes.shell.command;
+
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.CommandHash;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Inspects the {@link CommandHash} table.  Without arguments every
+ * remembered command is listed with its hit count; given command names it
+ * looks them up and adds them to the table.  {@code -r} empties the table
+ * and {@code -d <name>} forgets a single command.
+ */
+public final class HashCommand implements StreamCommand
+{
+    @Override
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
+    {
+        if (args.isEmpty())
+            return list(out);
+        String first = args.getFirst();
+        if (first.equalsIgnoreCase("-r"))
+        {
+            if (args.size() != 1)
+                return invalidUsage();
+            CommandHash.clear();
+            return CommandResult.Success;
+        }
+        if (first.equalsIgnoreCase("-d"))
+        {
+            if (args.size() < 2)
+                return invalidUsage();
+            for (String name : args.subList(1, args.size()))
+                if (!CommandHash.forget(name))
+                    return notFound(name);
+            return CommandResult.Success;
+        }
+        for (String name : args)
+            if (CommandHash.lookup(name).isEmpty())
+                return notFound(name);
+        return CommandResult.Success;
+    }
+    private CommandResult list(PrintStream out)
+    {
+        List<CommandHash.Snapshot> entries = CommandHash.entries();
+        if (entries.isEmpty())
+        {
+            out.println("hash table empty");
+            return CommandResult.Success;
+        }
+        out.println(Ansi.withForeground("hits\tcommand", Ansi.Foreground.YELLOW));
+        for (CommandHash.Snapshot entry : entries)
+            out.printf("%4d\t%s%n", entry.hits(), entry.path());
+        return CommandResult.Success;
+    }
+    private CommandResult notFound(String name)
+    {
+        ErrorPrinter.setLastError("HASH: " + name + ": not found");
+        return CommandResult.PathNotFound;
+    }
+    private CommandResult invalidUsage()
+    {
+        ErrorPrinter.setLastError(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": HASH [-r | -d <name>... | <name>...]");
+        return CommandResult.InvalidSyntax;
+    }
+}
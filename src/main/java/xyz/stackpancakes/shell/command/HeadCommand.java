@@ -0,0 +1,150 @@
+package xyz.stackpancakes.shell.command;
+
+import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.CurrentDirectory;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the first lines, or bytes with {@code -c}, of each named file or of
+ * the input.  Reading stops as soon as enough has been written, so the cost
+ * does not depend on the size of the file.
+ */
+public final class HeadCommand implements StreamCommand
+{
+    static final long DEFAULT_COUNT = 10;
+    private static final String USAGE = "HEAD [-n <lines> | -c <bytes> | -<lines>] [<file>...]";
+
+    @Override
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
+    {
+        long count = DEFAULT_COUNT;
+        boolean bytes = false;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++)
+        {
+            String arg = args.get(i);
+            if (arg.equals("-n") || arg.equals("-c"))
+            {
+                count = i + 1 < args.size() ? parseCount(args.get(++i)) : -1;
+                if (count < 0)
+                    return invalidUsage(USAGE);
+                bytes = arg.equals("-c");
+            }
+            else if (isAttachedCount(arg))
+            {
+                count = parseAttachedCount(arg);
+                if (count < 0)
+                    return invalidUsage(USAGE);
+                bytes = arg.startsWith("-c");
+            }
+            else
+                files.add(CurrentDirectory.get().resolve(arg));
+        }
+        for (Path file : files)
+            if (!Files.isRegularFile(file))
+            {
+                ErrorPrinter.setLastError("The system cannot find the path specified: " + file);
+                return CommandResult.PathNotFound;
+            }
+        try
+        {
+            if (files.isEmpty())
+                head(in, out, count, bytes);
+            for (Path file : files)
+            {
+                if (out.checkError())
+                    break;
+                if (files.size() > 1)
+                    printHeader(file, out, file == files.getFirst());
+                if (bytes)
+                {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+                    {
+                        ShowCommand.transfer(channel, 0, Math.min(count, channel.size()), out);
+                    }
+                }
+                else
+                {
+                    try (InputStream fileIn = Files.newInputStream(file))
+                    {
+                        head(fileIn, out, count, false);
+                    }
+                }
+            }
+            return CommandResult.Success;
+        }
+        catch (IOException e)
+        {
+            ErrorPrinter.setLastError("Error reading file: " + e.getMessage());
+            return CommandResult.Failure;
+        }
+    }
+
+    private static void head(InputStream in, PrintStream out, long count, boolean bytes) throws IOException
+    {
+        if (count == 0)
+            return;
+        if (bytes)
+            ShowCommand.copyBytes(in, out, count);
+        else
+            ShowCommand.copyLines(in, out, 1, count);
+    }
+
+    static void printHeader(Path file, PrintStream out, boolean first)
+    {
+        if (!first)
+            out.println();
+        out.println("==> " + file.getFileName() + " <==");
+    }
+
+    /**
+     * Whether {@code arg} gives a count in the same word as its option:
+     * {@code -n5}, {@code -c5}, or the traditional {@code -5} for lines.
+     */
+    static boolean isAttachedCount(String arg)
+    {
+        return arg.length() > 1 && arg.charAt(0) == '-'
+                && (Character.isDigit(arg.charAt(1)) || arg.length() > 2 && (arg.charAt(1) == 'n' || arg.charAt(1) == 'c'));
+    }
+
+    static long parseAttachedCount(String arg)
+    {
+        return parseCount(arg.substring(Character.isDigit(arg.charAt(1)) ? 1 : 2));
+    }
+
+    /**
+     * Parses an unsigned decimal count, or returns -1.  A sign is rejected
+     * rather than ignored: {@code +2} means "from line 2" to other tools.
+     */
+    static long parseCount(String value)
+    {
+        if (value.isEmpty() || !Character.isDigit(value.charAt(0)))
+            return -1;
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    static CommandResult invalidUsage(String usage)
+    {
+        ErrorPrinter.setLastError(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": " + usage);
+        return CommandResult.InvalidSyntax;
+    }
+}
@@ -0,0 +1,35 @@
+package xyz.stackpancakes.shell.command;
+
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+import xyz.stackpancakes.shell.job.Job;
+import xyz.stackpancakes.shell.job.JobTable;
+import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Lists the background jobs with their state and running time.  Finished
+ * jobs are listed once and then dropped from the table.
+ */
+public final class JobsCommand implements StreamCommand
+{
+    @Override
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
+    {
+        if (!args.isEmpty())
+        {
+            ErrorPrinter.setLastError(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": JOBS");
+            return CommandResult.InvalidSyntax;
+        }
+        for (Job job : JobTable.list())
+        {
+            out.println(JobTable.describe(job));
+            JobTable.remove(job);
+        }
+        return CommandResult.Success;
+    }
+}
@@ -0,0 +1,138 @@
+package xyz.stackpancakes.shell.command;
+
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+import xyz.stackpancakes.shell.job.Job;
+import xyz.stackpancakes.shell.job.JobTable;
+import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Stops background jobs and processes.  {@code %n} names a job: its
+ * processes, and those processes' children, are destroyed and its thread
+ * interrupted.  A bare number is a process ID, as for {@code kill(1)}.
+ * Only the two signals {@link ProcessHandle} can send are accepted:
+ * {@code TERM} (the default) and {@code KILL}; anything else needs the
+ * system's {@code kill} by its full path.
+ */
+public final class KillCommand implements StreamCommand
+{
+    @Override
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
+    {
+        boolean forcibly = false;
+        int i = 0;
+        if (i < args.size() && args.get(i).equalsIgnoreCase("-s"))
+        {
+            if (args.size() < 2)
+                return invalidUsage();
+            Boolean signal = parseSignal(args.get(i + 1));
+            if (signal == null)
+                return unsupportedSignal(args.get(i + 1));
+            forcibly = signal;
+            i += 2;
+        }
+        else if (i < args.size() && args.get(i).startsWith("-") && !args.get(i).equals("--"))
+        {
+            Boolean signal = parseSignal(args.get(i).substring(1));
+            if (signal == null)
+                return unsupportedSignal(args.get(i).substring(1));
+            forcibly = signal;
+            i++;
+        }
+        if (i < args.size() && args.get(i).equals("--"))
+            i++;
+        if (i == args.size())
+            return invalidUsage();
+
+        for (String spec : args.subList(i, args.size()))
+        {
+            CommandResult result = spec.startsWith("%") ? killJob(spec, forcibly) : killProcess(spec, forcibly);
+            if (result != CommandResult.Success)
+                return result;
+        }
+        return CommandResult.Success;
+    }
+
+    private static CommandResult killJob(String spec, boolean forcibly)
+    {
+        Optional<Job> job = JobTable.find(spec);
+        if (job.isEmpty())
+        {
+            ErrorPrinter.setLastError("KILL: " + spec + ": no such job");
+            return CommandResult.PathNotFound;
+        }
+        job.get().kill(forcibly);
+        return CommandResult.Success;
+    }
+
+    private static CommandResult killProcess(String spec, boolean forcibly)
+    {
+        long pid;
+        try
+        {
+            pid = Long.parseLong(spec);
+        }
+        catch (NumberFormatException _)
+        {
+            ErrorPrinter.setLastError("KILL: " + spec + ": arguments must be process or job IDs");
+            return CommandResult.InvalidSyntax;
+        }
+        Optional<ProcessHandle> process = ProcessHandle.of(pid);
+        if (process.isEmpty())
+        {
+            ErrorPrinter.setLastError("KILL: " + spec + ": no such process");
+            return CommandResult.PathNotFound;
+        }
+        boolean sent;
+        try
+        {
+            sent = forcibly ? process.get().destroyForcibly() : process.get().destroy();
+        }
+        catch (IllegalStateException _)
+        {
+            sent = false;
+        }
+        if (!sent)
+        {
+            ErrorPrinter.setLastError("KILL: " + spec + ": operation not permitted");
+            return CommandResult.PermissionDenied;
+        }
+        return CommandResult.Success;
+    }
+
+    /**
+     * Returns {@code true} for {@code KILL}, {@code false} for
+     * {@code TERM}, and {@code null} for any other signal.
+     */
+    private static Boolean parseSignal(String name)
+    {
+        String signal = name.toUpperCase(Locale.ROOT);
+        if (signal.startsWith("SIG"))
+            signal = signal.substring(3);
+        return switch (signal)
+        {
+            case "9", "KILL" -> true;
+            case "15", "TERM" -> false;
+            default -> null;
+        };
+    }
+
+    private static CommandResult unsupportedSignal(String name)
+    {
+        ErrorPrinter.setLastError("KILL: " + name + ": only TERM and KILL can be sent; run the system kill by its full path for other signals");
+        return CommandResult.UnknownOption;
+    }
+
+    private static CommandResult invalidUsage()
+    {
+        ErrorPrinter.setLastError(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": KILL [-TERM | -KILL | -9 | -s <signal>] (%<job> | <pid>)...");
+        return CommandResult.InvalidSyntax;
+    }
+}
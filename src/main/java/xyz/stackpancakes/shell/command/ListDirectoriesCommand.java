@@ -2,32 +2,63 @@ package xyz.stackpancakes.shell.command;
 
 import xyz.stackpancakes.shell.util.Ansi;
 import xyz.stackpancakes.shell.util.ErrorPrinter;
-import xyz.stackpancakes.shell.util.FileSystemUtils;
-import xyz.stackpancakes.shell.core.Command;
 import xyz.stackpancakes.shell.core.CommandResult;
-import xyz.stackpancakes.shell.util.OutputPrinter;
+import xyz.stackpancakes.shell.core.StreamCommand;
+import xyz.stackpancakes.shell.util.FileAttributeCache;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
 import java.util.stream.Stream;
 
 /**
  * Lists the contents of a directory and colours different file types.  If no
  * argument is supplied the current directory is listed.  Directories are
  * coloured blue with white text, executable files green and symlinks cyan.
+ * <p>
+ * {@code -l} adds permissions, size and modification time, all taken from
+ * one attribute read per entry.  {@code --sort name|size|time} orders the
+ * listing (sizes and times largest and newest first) and {@code -r}
+ * reverses it.  {@code --top N} keeps only the first {@code N} entries of
+ * that order, sorting by size unless told otherwise; it selects them with a
+ * bounded heap, so only {@code N} entries are held however large the
+ * directory is.  Without sorting, entries stream out in file system order.
  */
-public final class ListDirectoriesCommand implements Command
+public final class ListDirectoriesCommand implements StreamCommand
 {
+    private static final String USAGE = "DIR [-l] [--sort name|size|time] [-r] [--top <n>] [<directory>]";
+    private static final DateTimeFormatter timeFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    private enum SortKey { NONE, NAME, SIZE, TIME }
+
+    private record Options(boolean longFormat, SortKey sort, boolean reverse, int top, String path) {}
+
+    private record Listing(Path path, String name, FileAttributeCache.FileAttributes attributes) {}
+
     @Override
-    public CommandResult execute(List<String> args)
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
     {
         try
         {
+            Options options = parseOptions(args);
+            if (options == null)
+            {
+                ErrorPrinter.setLastError(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": " + USAGE);
+                return CommandResult.InvalidSyntax;
+            }
             Path currentDir = ChangeDirectoriesCommand.getCurrentDirectory();
-            Path dir = args.isEmpty() ? currentDir : resolvePath(args.getFirst(), currentDir);
+            Path dir = options.path() == null ? currentDir : resolvePath(options.path(), currentDir);
             if (!Files.exists(dir))
             {
                 ErrorPrinter.setLastError("The system cannot find the path specified.");
@@ -40,7 +71,13 @@ public final class ListDirectoriesCommand implements Command
             }
             try (Stream<Path> stream = Files.list(dir))
             {
-                stream.forEach(this::printEntry);
+                Stream<Listing> listings = stream.map(ListDirectoriesCommand::toListing);
+                if (options.top() > 0)
+                    topEntries(listings, comparator(options), options.top()).forEach(entry -> printEntry(entry, options, out));
+                else if (options.sort() != SortKey.NONE)
+                    listings.sorted(comparator(options)).forEach(entry -> printEntry(entry, options, out));
+                else
+                    listings.forEach(entry -> printEntry(entry, options, out));
             }
             catch (IOException e)
             {
@@ -55,6 +92,60 @@ public final class ListDirectoriesCommand implements Command
             return CommandResult.Failure;
         }
     }
+    private Options parseOptions(List<String> args)
+    {
+        boolean longFormat = false;
+        boolean reverse = false;
+        SortKey sort = SortKey.NONE;
+        int top = 0;
+        String path = null;
+        for (int i = 0; i < args.size(); i++)
+        {
+            String arg = args.get(i);
+            switch (arg.toLowerCase(Locale.ROOT))
+            {
+                case "-l", "--long" -> longFormat = true;
+                case "-r", "--reverse" -> reverse = true;
+                case "--sort" ->
+                {
+                    if (i + 1 >= args.size())
+                        return null;
+                    try
+                    {
+                        sort = SortKey.valueOf(args.get(++i).toUpperCase(Locale.ROOT));
+                    }
+                    catch (IllegalArgumentException e)
+                    {
+                        return null;
+                    }
+                }
+                case "--top" ->
+                {
+                    if (i + 1 >= args.size())
+                        return null;
+                    try
+                    {
+                        top = Integer.parseInt(args.get(++i));
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        return null;
+                    }
+                    if (top < 1)
+                        return null;
+                }
+                default ->
+                {
+                    if (path != null)
+                        return null;
+                    path = arg;
+                }
+            }
+        }
+        if (top > 0 && sort == SortKey.NONE)
+            sort = SortKey.SIZE;
+        return new Options(longFormat, sort, reverse, top, path);
+    }
     private Path resolvePath(String path, Path currentDir) throws IOException
     {
         Path resolved = Paths.get(path);
@@ -67,31 +158,69 @@ public final class ListDirectoriesCommand implements Command
         return resolved.toRealPath();
     }
 
-    private void printEntry(Path entry)
+    private static Listing toListing(Path entry)
     {
-        String name = entry.getFileName().toString();
-        String color = determineColor(entry);
-
-        String prev = OutputPrinter.getLastOutput().orElse("");
-
-        OutputPrinter.setLastOutput(prev + color + name + (color.isEmpty() ? "" : Ansi.RESET) + System.lineSeparator());
+        return new Listing(entry, entry.getFileName().toString(), FileAttributeCache.get(entry));
     }
 
-    private String determineColor(Path entry)
+    private static Comparator<Listing> comparator(Options options)
     {
-        try
+        Comparator<Listing> byName = Comparator.comparing(Listing::name);
+        Comparator<Listing> order = switch (options.sort())
         {
-            if (Files.isDirectory(entry))
-                return Ansi.background(Ansi.Background.BLUE) + Ansi.foreground(Ansi.Foreground.WHITE);
-            if (Files.isSymbolicLink(entry))
-                return Ansi.foreground(Ansi.Foreground.CYAN);
-            if (FileSystemUtils.isExecutable(entry))
-                return Ansi.foreground(Ansi.Foreground.GREEN);
-            return Ansi.foreground(Ansi.Foreground.WHITE);
-        }
-        catch (Exception e)
+            case SIZE -> Comparator.comparingLong((Listing l) -> l.attributes().size()).reversed().thenComparing(byName);
+            case TIME -> Comparator.comparing((Listing l) -> l.attributes().lastModified()).reversed().thenComparing(byName);
+            default -> byName;
+        };
+        return options.reverse() ? order.reversed() : order;
+    }
+
+    /**
+     * Selects the first {@code n} listings of {@code order} with a heap that
+     * never grows past {@code n}: its root is the worst entry kept so far and
+     * is replaced whenever a better one arrives.
+     */
+    private static List<Listing> topEntries(Stream<Listing> listings, Comparator<Listing> order, int n)
+    {
+        PriorityQueue<Listing> heap = new PriorityQueue<>(n, order.reversed());
+        listings.forEach(listing ->
         {
-            return Ansi.foreground(Ansi.Foreground.WHITE);
-        }
+            if (heap.size() < n)
+                heap.add(listing);
+            else if (order.compare(listing, heap.peek()) < 0)
+            {
+                heap.poll();
+                heap.add(listing);
+            }
+        });
+        List<Listing> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+
+    private void printEntry(Listing entry, Options options, PrintStream out)
+    {
+        String color = determineColor(entry.attributes());
+        String prefix = options.longFormat() ? longColumns(entry.attributes()) : "";
+
+        out.print(prefix + color + entry.name() + (color.isEmpty() ? "" : Ansi.RESET) + System.lineSeparator());
+    }
+
+    private static String longColumns(FileAttributeCache.FileAttributes attributes)
+    {
+        char type = attributes.symbolicLink() ? 'l' : attributes.directory() ? 'd' : '-';
+        String permissions = attributes.permissions() != null ? PosixFilePermissions.toString(attributes.permissions()) : "---------";
+        return String.format("%c%s %14d %s  ", type, permissions, attributes.size(), timeFormat.format(attributes.lastModified().toInstant()));
+    }
+
+    private String determineColor(FileAttributeCache.FileAttributes attributes)
+    {
+        if (attributes.directory())
+            return Ansi.background(Ansi.Background.BLUE) + Ansi.foreground(Ansi.Foreground.WHITE);
+        if (attributes.symbolicLink())
+            return Ansi.foreground(Ansi.Foreground.CYAN);
+        if (attributes.exists() && attributes.executable())
+            return Ansi.foreground(Ansi.Foreground.GREEN);
+        return Ansi.foreground(Ansi.Foreground.WHITE);
     }
-}
\ No newline at end of file
+}
@@ -1,27 +1,43 @@
 package xyz.stackpancakes.shell.command;
 
+import xyz.stackpancakes.shell.job.JobTable;
 import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.CurrentDirectory;
 import xyz.stackpancakes.shell.util.ErrorPrinter;
-import xyz.stackpancakes.shell.core.Command;
+import xyz.stackpancakes.shell.util.FileSystemUtils;
+import xyz.stackpancakes.shell.util.ProgressMeter;
 import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
 
 /**
  * Removes files or directories.  When the {@code -r} or {@code --recursive}
  * option is supplied the directory and its contents are removed; otherwise
- * only a single file may be deleted.
+ * only a single file may be deleted.  Recursive removal is post-order and
+ * streaming: each directory is read entry by entry, its subdirectories are
+ * removed in parallel as separate tasks, and the directory itself is
+ * deleted once they finish, so the tree is never held in memory as a whole.
+ * Entries that cannot be removed are counted and reported at the end.
  */
-public final class RemoveCommand implements Command
+public final class RemoveCommand implements StreamCommand
 {
     @Override
-    public CommandResult execute(List<String> args)
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
     {
         if (args.isEmpty())
         {
@@ -31,7 +47,7 @@ public final class RemoveCommand implements Command
         boolean recursive = false;
         Path target;
         if (args.size() == 1)
-            target = Paths.get(args.getFirst());
+            target = CurrentDirectory.get().resolve(args.getFirst()).normalize();
         else if (args.size() == 2)
         {
             if (!isRecursiveOption(args.getFirst()))
@@ -40,45 +56,51 @@ public final class RemoveCommand implements Command
                 return CommandResult.UnknownOption;
             }
             recursive = true;
-            target = Paths.get(args.get(1));
+            target = CurrentDirectory.get().resolve(args.get(1)).normalize();
         }
         else
         {
             ErrorPrinter.setLastError(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": REMOVE [-r | --RECURSIVE] <path>");
             return CommandResult.InvalidSyntax;
         }
-        return removePath(target, recursive);
+        return removePath(target, recursive, err);
     }
     private static boolean isRecursiveOption(String option)
     {
         return option.equals("-r") || option.equalsIgnoreCase("--RECURSIVE");
     }
-    private CommandResult removePath(Path target, boolean recursive)
+    private CommandResult removePath(Path target, boolean recursive, PrintStream err)
     {
-        if (!Files.exists(target))
+        if (!Files.exists(target, LinkOption.NOFOLLOW_LINKS))
         {
             ErrorPrinter.setLastError("The system cannot find the path specified: " + target);
             return CommandResult.PathNotFound;
         }
         try
         {
-            if (Files.isDirectory(target))
+            if (Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS))
             {
                 if (!recursive)
                 {
                     ErrorPrinter.setLastError("The specified path is a directory. Use -r to remove recursively.");
                     return CommandResult.InvalidSyntax;
                 }
-                try (Stream<Path> stream = Files.walk(target))
+                Queue<String> failures = new ConcurrentLinkedQueue<>();
+                BooleanSupplier cancelled = JobTable.cancellation();
+                try (ProgressMeter progress = new ProgressMeter("Removed", err);
+                     ForkJoinPool pool = new ForkJoinPool())
                 {
-                    stream.sorted(Comparator.reverseOrder()).forEach(path ->
-                    {
-                        try
-                        {
-                            Files.delete(path);
-                        }
-                        catch (IOException ignored) {}
-                    });
+                    pool.invoke(new DeleteTreeTask(target, progress, failures, cancelled));
+                }
+                if (cancelled.getAsBoolean())
+                {
+                    ErrorPrinter.setLastError("DELETE: interrupted");
+                    return CommandResult.Failure;
+                }
+                if (!failures.isEmpty())
+                {
+                    ErrorPrinter.setLastError(Ansi.withForeground("Error", Ansi.Foreground.RED) + ": " + FileSystemUtils.summariseFailures(failures, "removed"));
+                    return CommandResult.Failure;
                 }
             }
             else
@@ -91,4 +113,80 @@ public final class RemoveCommand implements Command
         }
         return CommandResult.Success;
     }
-}
\ No newline at end of file
+
+    /**
+     * Empties and deletes one directory, yielding whether it is gone.  A
+     * directory is only deleted when all of its entries were; otherwise the
+     * entries that failed are reported and the directory is left in place
+     * without reporting it a second time.
+     */
+    private static final class DeleteTreeTask extends RecursiveTask<Boolean>
+    {
+        private final Path directory;
+        private final ProgressMeter progress;
+        private final Queue<String> failures;
+        private final BooleanSupplier cancelled;
+
+        DeleteTreeTask(Path directory, ProgressMeter progress, Queue<String> failures, BooleanSupplier cancelled)
+        {
+            this.directory = directory;
+            this.progress = progress;
+            this.failures = failures;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected Boolean compute()
+        {
+            boolean emptied = true;
+            List<DeleteTreeTask> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory))
+            {
+                for (Path entry : entries)
+                {
+                    if (cancelled.getAsBoolean())
+                    {
+                        emptied = false;
+                        break;
+                    }
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS))
+                    {
+                        DeleteTreeTask task = new DeleteTreeTask(entry, progress, failures, cancelled);
+                        task.fork();
+                        subdirectories.add(task);
+                    }
+                    else
+                        emptied &= delete(entry);
+                }
+            }
+            catch (IOException e)
+            {
+                failures.add(FileSystemUtils.describeFailure(directory, e));
+                emptied = false;
+            }
+            catch (DirectoryIteratorException e)
+            {
+                failures.add(FileSystemUtils.describeFailure(directory, e.getCause()));
+                emptied = false;
+            }
+            for (int i = subdirectories.size() - 1; i >= 0; i--)
+                emptied &= subdirectories.get(i).join();
+            return emptied && delete(directory);
+        }
+
+        private boolean delete(Path path)
+        {
+            try
+            {
+                Files.delete(path);
+                progress.add(1, 0);
+                return true;
+            }
+            catch (IOException e)
+            {
+                failures.add(FileSystemUtils.describeFailure(path, e));
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package xyz.stackpancakes.shell.command;
+
+import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.CurrentDirectory;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes one or more files to the output, one after another, or copies the
+ * input when no file is named so {@code SHOW} can act as a pipeline stage.
+ * Content is streamed in fixed-size chunks and never held as a whole; plain
+ * files are read with {@link FileChannel#transferTo}, which copies through a
+ * heap buffer since the output is a {@link PrintStream}.
+ * <p>
+ * {@code --from} and {@code --to} restrict the output to a range of lines,
+ * or of bytes with {@code --bytes}.  Both count from 1 and are inclusive;
+ * either may be left out.  Line ranges are found by scanning for newline
+ * bytes, so nothing is decoded on the way.
+ */
+public final class ShowCommand implements StreamCommand
+{
+    static final int CHUNK_SIZE = 64 * 1024;
+    private static final long TRANSFER_SIZE = 1L << 20;
+    private static final String USAGE = "SHOW [--bytes | -c] [--from <n>] [--to <n>] [<file>...]";
+
+    private record Range(boolean bytes, long from, long to)
+    {
+        boolean isWhole()
+        {
+            return from <= 1 && to == Long.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
+    {
+        boolean bytes = false;
+        long from = 1;
+        long to = Long.MAX_VALUE;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++)
+        {
+            String arg = args.get(i);
+            switch (arg.toLowerCase(Locale.ROOT))
+            {
+                case "-c", "--bytes" -> bytes = true;
+                case "--from", "--to" ->
+                {
+                    long value = i + 1 < args.size() ? parsePositive(args.get(++i)) : -1;
+                    if (value < 1)
+                        return invalidUsage();
+                    if (arg.equalsIgnoreCase("--from"))
+                        from = value;
+                    else
+                        to = value;
+                }
+                default -> files.add(CurrentDirectory.get().resolve(arg));
+            }
+        }
+        if (from > to || files.isEmpty() && in == StreamCommand.NO_INPUT)
+            return invalidUsage();
+        Range range = new Range(bytes, from, to);
+        for (Path file : files)
+            if (!Files.isRegularFile(file))
+            {
+                ErrorPrinter.setLastError("The system cannot find the path specified: " + file);
+                return CommandResult.PathNotFound;
+            }
+        try
+        {
+            if (files.isEmpty())
+                copy(in, out, range);
+            for (Path file : files)
+            {
+                if (out.checkError())
+                    break;
+                showFile(file, out, range);
+            }
+            return CommandResult.Success;
+        }
+        catch (IOException e)
+        {
+            ErrorPrinter.setLastError("Error reading file: " + e.getMessage());
+            return CommandResult.Failure;
+        }
+    }
+
+    private static void showFile(Path file, PrintStream out, Range range) throws IOException
+    {
+        if (!range.bytes() && !range.isWhole())
+        {
+            try (InputStream in = Files.newInputStream(file))
+            {
+                copyLines(in, out, range.from(), range.to());
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long end = range.to() == Long.MAX_VALUE ? channel.size() : Math.min(channel.size(), range.to());
+            transfer(channel, range.from() - 1, end, out);
+        }
+    }
+
+    /**
+     * Transfers {@code [position, end)} of a file in bounded steps, checking
+     * between steps whether the consumer is still there.  Stops early if the
+     * file shrinks below {@code end} meanwhile.
+     */
+    static void transfer(FileChannel channel, long position, long end, PrintStream out) throws IOException
+    {
+        out.flush();
+        WritableByteChannel target = Channels.newChannel(out);
+        while (position < end && !out.checkError())
+        {
+            long transferred = channel.transferTo(position, Math.min(TRANSFER_SIZE, end - position), target);
+            if (transferred == 0)
+                break;
+            position += transferred;
+        }
+    }
+
+    private static void copy(InputStream in, PrintStream out, Range range) throws IOException
+    {
+        if (!range.bytes())
+        {
+            copyLines(in, out, range.from(), range.to());
+            return;
+        }
+        in.skipNBytes(range.from() - 1);
+        copyBytes(in, out, range.to() == Long.MAX_VALUE ? Long.MAX_VALUE : range.to() - range.from() + 1);
+    }
+
+    static void copyBytes(InputStream in, PrintStream out, long limit) throws IOException
+    {
+        byte[] buf = new byte[CHUNK_SIZE];
+        int n;
+        while (limit > 0 && (n = in.read(buf, 0, (int) Math.min(buf.length, limit))) != -1 && !out.checkError())
+        {
+            out.write(buf, 0, n);
+            limit -= n;
+        }
+    }
+
+    /**
+     * Copies lines {@code from} to {@code to} (1-based, inclusive) of the
+     * input, scanning raw bytes for {@code '\n'} and stopping as soon as the
+     * last wanted line has been written.
+     */
+    static void copyLines(InputStream in, PrintStream out, long from, long to) throws IOException
+    {
+        byte[] buf = new byte[CHUNK_SIZE];
+        long line = 1;
+        int n;
+        while ((n = in.read(buf)) != -1 && !out.checkError())
+        {
+            int start = line >= from ? 0 : -1;
+            for (int i = 0; i < n; i++)
+            {
+                if (buf[i] != '\n')
+                    continue;
+                line++;
+                if (line > to)
+                {
+                    if (start >= 0)
+                        out.write(buf, start, i + 1 - start);
+                    return;
+                }
+                if (start < 0 && line >= from)
+                    start = i + 1;
+            }
+            if (start >= 0 && start < n)
+                out.write(buf, start, n - start);
+        }
+    }
+
+    private static long parsePositive(String value)
+    {
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    private static CommandResult invalidUsage()
+    {
+        ErrorPrinter.setLastError(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": " + USAGE);
+        return CommandResult.InvalidSyntax;
+    }
+}
@@ -0,0 +1,264 @@
+package xyz.stackpancakes.shell.command;
+
+import xyz.stackpancakes.shell.util.CurrentDirectory;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.util.FileSystemUtils;
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the last lines, or bytes with {@code -c}, of each named file or of
+ * the input.  For files the start of the last lines is found by reading
+ * backwards from the end in fixed-size blocks, so only the tail is read.
+ * The input has no end to seek to and is instead read through while the
+ * last lines are kept.
+ * <p>
+ * With {@code --follow} the command keeps a single file open and writes
+ * whatever is appended to it, waking up on {@link WatchService} events for
+ * its directory, and at least every {@link #FOLLOW_POLL_MILLIS} to notice a
+ * consumer that has gone.  A truncated file is shown again from the start.
+ * Ctrl+C ends the command.
+ */
+public final class TailCommand implements StreamCommand
+{
+    private static final long FOLLOW_POLL_MILLIS = 250;
+    private static final String USAGE = "TAIL [-n <lines> | -c <bytes> | -<lines>] [-f | --follow] [<file>...]";
+
+    @Override
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
+    {
+        long count = HeadCommand.DEFAULT_COUNT;
+        boolean bytes = false;
+        boolean follow = false;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++)
+        {
+            String arg = args.get(i);
+            switch (arg)
+            {
+                case "-f", "--follow" -> follow = true;
+                case "-n", "-c" ->
+                {
+                    count = i + 1 < args.size() ? HeadCommand.parseCount(args.get(++i)) : -1;
+                    if (count < 0)
+                        return HeadCommand.invalidUsage(USAGE);
+                    bytes = arg.equals("-c");
+                }
+                default ->
+                {
+                    if (!HeadCommand.isAttachedCount(arg))
+                        files.add(CurrentDirectory.get().resolve(arg));
+                    else if ((count = HeadCommand.parseAttachedCount(arg)) < 0)
+                        return HeadCommand.invalidUsage(USAGE);
+                    else
+                        bytes = arg.startsWith("-c");
+                }
+            }
+        }
+        if (follow && files.size() != 1)
+            return HeadCommand.invalidUsage(USAGE);
+        for (Path file : files)
+            if (!Files.isRegularFile(file))
+            {
+                ErrorPrinter.setLastError("The system cannot find the path specified: " + file);
+                return CommandResult.PathNotFound;
+            }
+        try
+        {
+            if (files.isEmpty())
+            {
+                if (bytes)
+                    tailBytes(in, out, count);
+                else
+                    tailLines(in, out, count);
+            }
+            for (Path file : files)
+            {
+                if (out.checkError())
+                    break;
+                if (files.size() > 1)
+                    HeadCommand.printHeader(file, out, file == files.getFirst());
+                long end = tail(file, out, count, bytes);
+                if (follow)
+                    follow(file, end, out);
+            }
+            return CommandResult.Success;
+        }
+        catch (IOException e)
+        {
+            ErrorPrinter.setLastError("Error reading file: " + e.getMessage());
+            return CommandResult.Failure;
+        }
+    }
+
+    /**
+     * Writes the tail of {@code file} and returns the position it ended at.
+     */
+    private static long tail(Path file, PrintStream out, long count, boolean bytes) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            long start = bytes ? Math.max(0, size - count) : startOfLastLines(channel, size, count);
+            ShowCommand.transfer(channel, start, size, out);
+            return size;
+        }
+    }
+
+    /**
+     * Scans backwards from {@code size} for the newline preceding the last
+     * {@code count} lines.  A newline ending the file terminates the last
+     * line rather than starting an empty one.
+     */
+    static long startOfLastLines(FileChannel channel, long size, long count) throws IOException
+    {
+        if (count == 0)
+            return size;
+        ByteBuffer buf = ByteBuffer.allocate(ShowCommand.CHUNK_SIZE);
+        long remaining = count;
+        long position = size;
+        while (position > 0)
+        {
+            int length = (int) Math.min(buf.capacity(), position);
+            position -= length;
+            buf.clear().limit(length);
+            while (buf.hasRemaining())
+                if (channel.read(buf, position + buf.position()) < 0)
+                    break;
+            for (int i = buf.position() - 1; i >= 0; i--)
+            {
+                if (buf.get(i) != '\n' || position + i == size - 1)
+                    continue;
+                if (--remaining == 0)
+                    return position + i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static void tailLines(InputStream in, PrintStream out, long count) throws IOException
+    {
+        ArrayDeque<byte[]> lines = new ArrayDeque<>();
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        byte[] buf = new byte[ShowCommand.CHUNK_SIZE];
+        int n;
+        while ((n = in.read(buf)) != -1)
+        {
+            int start = 0;
+            for (int i = 0; i < n; i++)
+            {
+                if (buf[i] != '\n')
+                    continue;
+                line.write(buf, start, i + 1 - start);
+                start = i + 1;
+                keep(lines, line, count);
+            }
+            line.write(buf, start, n - start);
+        }
+        if (line.size() > 0)
+            keep(lines, line, count);
+        for (byte[] kept : lines)
+            out.write(kept);
+    }
+
+    private static void keep(ArrayDeque<byte[]> lines, ByteArrayOutputStream line, long count)
+    {
+        if (count > 0)
+            lines.addLast(line.toByteArray());
+        if (lines.size() > count)
+            lines.removeFirst();
+        line.reset();
+    }
+
+    private static void tailBytes(InputStream in, PrintStream out, long count) throws IOException
+    {
+        int capacity = (int) Math.min(count, Integer.MAX_VALUE - 8);
+        if (capacity == 0)
+        {
+            in.transferTo(OutputStream.nullOutputStream());
+            return;
+        }
+        byte[] ring = new byte[Math.min(capacity, ShowCommand.CHUNK_SIZE)];
+        long total = 0;
+        int n;
+        while (true)
+        {
+            if (total == ring.length && ring.length < capacity)
+                ring = Arrays.copyOf(ring, (int) Math.min(2L * ring.length, capacity));
+            int offset = (int) (total % ring.length);
+            if ((n = in.read(ring, offset, ring.length - offset)) == -1)
+                break;
+            total += n;
+        }
+        if (total <= ring.length)
+        {
+            out.write(ring, 0, (int) total);
+            return;
+        }
+        int oldest = (int) (total % ring.length);
+        out.write(ring, oldest, ring.length - oldest);
+        out.write(ring, 0, oldest);
+    }
+
+    private static void follow(Path file, long position, PrintStream out) throws IOException
+    {
+        Path absolute = file.toAbsolutePath();
+        Path directory = absolute.getParent();
+        FileSystemUtils.setInterruptibleThread(Thread.currentThread());
+        try (WatchService watcher = directory.getFileSystem().newWatchService();
+             FileChannel channel = FileChannel.open(absolute, StandardOpenOption.READ))
+        {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+            out.flush();
+            while (!out.checkError())
+            {
+                WatchKey key = watcher.poll(FOLLOW_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key == null)
+                    continue;
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents())
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || absolute.getFileName().equals(event.context());
+                key.reset();
+                if (!changed)
+                    continue;
+                long size = channel.size();
+                if (size < position)
+                    position = 0;
+                ShowCommand.transfer(channel, position, size, out);
+                position = size;
+                out.flush();
+            }
+        }
+        catch (InterruptedException | ClosedByInterruptException | ClosedWatchServiceException _)
+        {
+            // Ctrl+C is the normal way to stop following.
+        }
+        finally
+        {
+            FileSystemUtils.setInterruptibleThread(null);
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package xyz.stackpancakes.shell.command;
+
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+import xyz.stackpancakes.shell.job.Job;
+import xyz.stackpancakes.shell.job.JobTable;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.util.FileSystemUtils;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Waits for the given background jobs, or for all of them, and fails if
+ * any of them did.  Ctrl+C ends the wait but leaves the jobs running.
+ */
+public final class WaitCommand implements StreamCommand
+{
+    @Override
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
+    {
+        List<Job> jobs = new ArrayList<>();
+        if (args.isEmpty())
+            jobs.addAll(JobTable.list());
+        for (String spec : args)
+        {
+            Optional<Job> job = JobTable.find(spec);
+            if (job.isEmpty())
+            {
+                ErrorPrinter.setLastError("WAIT: " + spec + ": no such job");
+                return CommandResult.PathNotFound;
+            }
+            jobs.add(job.get());
+        }
+
+        List<String> failed = new ArrayList<>();
+        FileSystemUtils.setInterruptibleThread(Thread.currentThread());
+        try
+        {
+            for (Job job : jobs)
+            {
+                if (!job.await())
+                    failed.add("[" + job.id() + "] " + job.state());
+                JobTable.remove(job);
+            }
+        }
+        catch (InterruptedException _)
+        {
+            ErrorPrinter.setLastError("WAIT: interrupted");
+            return CommandResult.Failure;
+        }
+        finally
+        {
+            FileSystemUtils.setInterruptibleThread(null);
+        }
+        if (!failed.isEmpty())
+        {
+            ErrorPrinter.setLastError("WAIT: " + String.join(", ", failed));
+            return CommandResult.Failure;
+        }
+        return CommandResult.Success;
+    }
+}
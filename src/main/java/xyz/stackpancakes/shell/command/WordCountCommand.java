@@ -0,0 +1,127 @@
+package xyz.stackpancakes.shell.command;
+
+import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.CurrentDirectory;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.util.TextCounter;
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts lines, words and bytes of files or of the input.  Files are mapped
+ * whole into a confined arena, which is released as soon as the file has
+ * been counted, and the counting itself is done by {@link TextCounter},
+ * vectorised when the runtime allows it.
+ */
+public final class WordCountCommand implements StreamCommand
+{
+    private record Selection(boolean lines, boolean words, boolean bytes) {}
+
+    @Override
+    public CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err)
+    {
+        boolean lines = false, words = false, bytes = false;
+        List<String> files = new ArrayList<>();
+        for (String arg : args)
+        {
+            if (arg.length() > 1 && arg.startsWith("-") && arg.chars().skip(1).allMatch(c -> "lwc".indexOf(c) >= 0))
+            {
+                lines |= arg.indexOf('l') > 0;
+                words |= arg.indexOf('w') > 0;
+                bytes |= arg.indexOf('c') > 0;
+            }
+            else if (arg.startsWith("-") && arg.length() > 1)
+            {
+                ErrorPrinter.setLastError(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": Unknown option: " + arg
+                        + "; use the system wc for other options");
+                return CommandResult.UnknownOption;
+            }
+            else
+                files.add(arg);
+        }
+        Selection selection = lines || words || bytes ? new Selection(lines, words, bytes) : new Selection(true, true, true);
+        for (String file : files)
+            if (!Files.isRegularFile(CurrentDirectory.resolve(file)))
+            {
+                ErrorPrinter.setLastError("The system cannot find the path specified: " + file);
+                return CommandResult.PathNotFound;
+            }
+        try
+        {
+            if (files.isEmpty())
+            {
+                print(out, selection, countStream(in), null);
+                return CommandResult.Success;
+            }
+            long[] total = new long[3];
+            for (String file : files)
+            {
+                TextCounter counter = countFile(file);
+                print(out, selection, counter, file);
+                total[0] += counter.lines();
+                total[1] += counter.words();
+                total[2] += counter.bytes();
+            }
+            if (files.size() > 1)
+                print(out, selection, total[0], total[1], total[2], "total");
+            return CommandResult.Success;
+        }
+        catch (IOException e)
+        {
+            ErrorPrinter.setLastError("Error reading file: " + e.getMessage());
+            return CommandResult.Failure;
+        }
+    }
+
+    private static TextCounter countFile(String file) throws IOException
+    {
+        TextCounter counter = TextCounter.create();
+        try (FileChannel channel = FileChannel.open(CurrentDirectory.resolve(file), StandardOpenOption.READ);
+             Arena arena = Arena.ofConfined())
+        {
+            counter.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+        }
+        return counter;
+    }
+
+    private static TextCounter countStream(InputStream in) throws IOException
+    {
+        TextCounter counter = TextCounter.create();
+        byte[] buf = new byte[ShowCommand.CHUNK_SIZE];
+        MemorySegment segment = MemorySegment.ofArray(buf);
+        int n;
+        while ((n = in.read(buf)) != -1)
+            counter.update(segment.asSlice(0, n));
+        return counter;
+    }
+
+    private static void print(PrintStream out, Selection selection, TextCounter counter, String name)
+    {
+        print(out, selection, counter.lines(), counter.words(), counter.bytes(), name);
+    }
+
+    private static void print(PrintStream out, Selection selection, long lines, long words, long bytes, String name)
+    {
+        StringBuilder sb = new StringBuilder();
+        if (selection.lines())
+            sb.append(String.format(" %7d", lines));
+        if (selection.words())
+            sb.append(String.format(" %7d", words));
+        if (selection.bytes())
+            sb.append(String.format(" %7d", bytes));
+        if (name != null)
+            sb.append(' ').append(name);
+        out.println(sb);
+    }
+}
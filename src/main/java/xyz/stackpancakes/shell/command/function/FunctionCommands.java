@@ -7,15 +7,9 @@ import xyz.stackpancakes.shell.util.Ansi;
 import xyz.stackpancakes.shell.util.CurrentDirectory;
 import xyz.stackpancakes.shell.util.ErrorPrinter;
 import xyz.stackpancakes.shell.core.CommandResult;
-import xyz.stackpancakes.shell.util.OutputPrinter;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.CharsetDecoder;
-import java.nio.charset.CodingErrorAction;
-import java.nio.charset.MalformedInputException;
-import java.nio.charset.StandardCharsets;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
@@ -46,16 +40,13 @@ public final class FunctionCommands
         return list;
     }
 
-    public static CommandResult helpCommand()
+    public static CommandResult helpCommand(PrintStream out)
     {
         for (String entry : stringHelp)
         {
             String[] parts = entry.split(":", 2);
             String nameColored = Ansi.withForeground(String.format("%-16s", parts[0]), Ansi.Foreground.YELLOW);
-
-            String prev = OutputPrinter.getLastOutput().orElse("");
-
-            OutputPrinter.setLastOutput(prev + String.format("| %s -> %s.%n", nameColored, parts[1]));
+            out.printf("| %s -> %s.%n", nameColored, parts[1]);
         }
         return CommandResult.Success;
     }
@@ -69,36 +60,6 @@ public final class FunctionCommands
             return CommandResult.AlreadyExists;
         return createFile(filePath);
     }
-    public static CommandResult showCommand(List<String> args)
-    {
-        if (args.size() != 1)
-            return invalidUsage("SHOW <file>");
-        Path file = CurrentDirectory.get().resolve(args.getFirst());
-        if (!Files.exists(file) || !Files.isRegularFile(file))
-            return pathNotFound(file);
-        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
-        decoder.onMalformedInput(CodingErrorAction.REPORT);
-        decoder.onUnmappableCharacter(CodingErrorAction.REPORT);
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file), decoder)))
-        {
-            StringBuilder sb = new StringBuilder();
-
-            String line;
-            while ((line = reader.readLine()) != null)
-                sb.append(line).append(System.lineSeparator());
-
-            OutputPrinter.setLastOutput(sb.toString());
-            return CommandResult.Success;
-        }
-        catch (MalformedInputException e)
-        {
-            return commandFailure("Malformed input in file: " + e.getMessage() + " skipping...");
-        }
-        catch (IOException e)
-        {
-            return commandFailure("Error reading file: " + e.getMessage());
-        }
-    }
     private static CommandResult createFile(Path filePath)
     {
         try
@@ -111,7 +72,7 @@ public final class FunctionCommands
             return commandFailure("Cannot create file: " + e.getMessage());
         }
     }
-    public static CommandResult versionCommand()
+    public static CommandResult versionCommand(PrintStream out)
     {
         String box =
                 Ansi.withForeground("+----------------------------------+\n", Ansi.Foreground.BLUE)
@@ -133,12 +94,12 @@ public final class FunctionCommands
                         + " ".repeat(5)
                         + Ansi.withForeground("|\n", Ansi.Foreground.BLUE)
                         + Ansi.withForeground("+----------------------------------+\n", Ansi.Foreground.BLUE);
-        OutputPrinter.setLastOutput(box);
+        out.print(box);
         return CommandResult.Success;
     }
-    public static CommandResult printCommand(List<String> args)
+    public static CommandResult printCommand(List<String> args, PrintStream out)
     {
-        OutputPrinter.setLastOutput(String.join(" ", args) + System.lineSeparator());
+        out.print(String.join(" ", args) + System.lineSeparator());
         return CommandResult.Success;
     }
     public static CommandResult MCDCommand(List<String> args)
@@ -154,11 +115,6 @@ public final class FunctionCommands
         ErrorPrinter.setLastError(Ansi.withForeground("Usage", Ansi.Foreground.RED) + ": " + usage);
         return CommandResult.InvalidSyntax;
     }
-    private static CommandResult pathNotFound(Path path)
-    {
-        ErrorPrinter.setLastError("The system cannot find the path specified: " + path);
-        return CommandResult.PathNotFound;
-    }
     private static CommandResult commandFailure(String message)
     {
         ErrorPrinter.setLastError(message);
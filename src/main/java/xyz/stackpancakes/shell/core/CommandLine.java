@@ -0,0 +1,36 @@
+package xyz.stackpancakes.shell.core;
+
+import java.util.List;
+
+/**
+ * One step of a {@link CommandList}: a single command or a pipeline of
+ * them.  {@code background} is set for a step followed by {@code &}, which
+ * is not part of {@code text}.
+ */
+public record CommandLine(String text, List<SimpleCommand> commands, boolean background)
+{
+    public CommandLine(String text, List<SimpleCommand> commands, boolean background)
+    {
+        this.text = text;
+        this.commands = List.copyOf(commands);
+        this.background = background;
+    }
+
+    /**
+     * Whether the step needs the pipeline machinery: more than one command,
+     * or any redirection.
+     */
+    public boolean pipeline()
+    {
+        return commands.size() > 1 || !commands.getFirst().redirections().isEmpty();
+    }
+
+    /**
+     * The same step to be run in the foreground, as a background job runs
+     * it.
+     */
+    public CommandLine inForeground()
+    {
+        return background ? new CommandLine(text, commands, false) : this;
+    }
+}
@@ -0,0 +1,37 @@
+package xyz.stackpancakes.shell.core;
+
+import java.util.List;
+
+/**
+ * A whole input line: commands or pipelines joined by {@code ;},
+ * {@code &&} and {@code ||}, each possibly sent to the background with
+ * {@code &}.  Every step records how it depends on the status of the steps
+ * before it.  A line that does not parse keeps its {@code syntaxError} and
+ * no steps.
+ */
+public record CommandList(String text, List<Step> steps, String syntaxError)
+{
+    public enum Connector
+    {
+        /** First step, or after {@code ;} or {@code &}: always runs. */
+        ALWAYS,
+        /** After {@code &&}: runs only if the status so far is success. */
+        AND,
+        /** After {@code ||}: runs only if the status so far is a failure. */
+        OR
+    }
+
+    public record Step(Connector connector, CommandLine command) {}
+
+    public CommandList(String text, List<Step> steps, String syntaxError)
+    {
+        this.text = text;
+        this.steps = List.copyOf(steps);
+        this.syntaxError = syntaxError;
+    }
+
+    public static CommandList invalid(String text, String syntaxError)
+    {
+        return new CommandList(text, List.of(), syntaxError);
+    }
+}
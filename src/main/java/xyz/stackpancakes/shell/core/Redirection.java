@@ -0,0 +1,31 @@
+package xyz.stackpancakes.shell.core;
+
+/**
+ * One redirection operator as written on the command line, with its file
+ * name still unresolved, since that depends on the directory current when
+ * the line runs.  {@code target} is {@code null} for {@code 2>&1}.
+ */
+public record Redirection(Kind kind, String target)
+{
+    public enum Kind
+    {
+        INPUT("<"),
+        OUTPUT(">"),
+        APPEND(">>"),
+        ERROR("2>"),
+        ERROR_APPEND("2>>"),
+        ERROR_TO_OUTPUT("2>&1");
+
+        private final String operator;
+
+        Kind(String operator)
+        {
+            this.operator = operator;
+        }
+
+        public String operator()
+        {
+            return operator;
+        }
+    }
+}
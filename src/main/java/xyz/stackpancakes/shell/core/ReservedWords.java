@@ -10,6 +10,7 @@ import java.util.Locale;
 public enum ReservedWords
 {
     CHDIR,
+    CHECKSUM,
     CD,
     CLEAR,
     CLS,
@@ -17,22 +18,34 @@ public enum ReservedWords
     DELETE,
     DEL,
     DIR,
+    DU,
     ERASE,
     EXIT,
+    FG,
+    FIND,
+    GREP,
+    HASH,
+    HEAD,
     HELP,
+    JOBS,
+    KILL,
     MCD,
     MKDIR,
     MD,
     NEW,
     PAUSE,
     PRINT,
+    REHASH,
     RENAME,
     RMDIR,
     RD,
     REN,
     SHOW,
+    TAIL,
     VERSION,
     VER,
+    WAIT,
+    WC,
     WHEREAMI,
     UNKNOWN;
 
@@ -50,6 +63,21 @@ public enum ReservedWords
         }
     }
 
+    /**
+     * Whether this built‑in shares its name with a standard Unix tool whose
+     * options it only partly supports.  Outside Windows such a built‑in is
+     * only chosen by its upper-case name, or when the tool is not on
+     * {@code PATH}, so scripts written for the tool keep working.
+     */
+    public boolean namesSystemTool()
+    {
+        return switch (this)
+        {
+            case DU, FIND, GREP, HEAD, TAIL, WC -> true;
+            default -> false;
+        };
+    }
+
     public String info()
     {
         return switch (this)
@@ -67,10 +95,23 @@ public enum ReservedWords
             case COPY -> "Copy files";
             case NEW -> "Create a file";
             case SHOW -> "Outputs the file";
+            case HEAD -> "Outputs the first lines of a file";
+            case GREP -> "Search files for lines matching a pattern";
+            case FIND -> "Search directories for files";
+            case CHECKSUM -> "Compute or verify file checksums";
+            case DU -> "Show disk usage of directories";
+            case WC -> "Count lines, words and bytes";
+            case TAIL -> "Outputs the last lines of a file";
             case DELETE, DEL, ERASE -> "Removes the file";
             case CHDIR, CD -> "Change current directories";
             case WHEREAMI -> "Show the current directories";
             case PAUSE -> "Delays the shell until you press any keys";
+            case HASH -> "Show remembered command locations";
+            case REHASH -> "Forget all remembered command locations";
+            case JOBS -> "List background jobs";
+            case FG -> "Wait for a background job in the foreground";
+            case WAIT -> "Wait for background jobs to finish";
+            case KILL -> "Stop a background job or process";
             default -> "UNKNOWN";
         };
     }
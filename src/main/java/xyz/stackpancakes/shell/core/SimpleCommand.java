@@ -0,0 +1,18 @@
+package xyz.stackpancakes.shell.core;
+
+import java.util.List;
+
+/**
+ * One command of a pipeline: its words, quotes already removed, and the
+ * redirections written around them.  Quoted operators such as
+ * {@code ">"} stay words.  {@code words} is empty for a command made only
+ * of redirections.
+ */
+public record SimpleCommand(List<String> words, List<Redirection> redirections)
+{
+    public SimpleCommand(List<String> words, List<Redirection> redirections)
+    {
+        this.words = List.copyOf(words);
+        this.redirections = List.copyOf(redirections);
+    }
+}
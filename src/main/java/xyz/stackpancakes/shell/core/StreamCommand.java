@@ -0,0 +1,33 @@
+package xyz.stackpancakes.shell.core;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Variant of {@link Command} for built‑ins that can take part in a
+ * pipeline.  Input, output and error streams are supplied per invocation
+ * rather than taken from {@code System.out}, so such a command can read the
+ * previous stage's output, stream its own output as it is produced, and run
+ * at the same time as other built‑ins.  Implementations must not close the
+ * streams they are given.
+ */
+@FunctionalInterface
+public interface StreamCommand
+{
+    /**
+     * The input of a built‑in that has none: it runs on its own or first in
+     * a pipeline, while the shell's standard input stays with the terminal.
+     * It is always at end of file and closing it has no effect.
+     */
+    InputStream NO_INPUT = new InputStream()
+    {
+        @Override
+        public int read()
+        {
+            return -1;
+        }
+    };
+
+    CommandResult execute(List<String> args, InputStream in, PrintStream out, PrintStream err);
+}
@@ -0,0 +1,154 @@
+package xyz.stackpancakes.shell.daemon;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Thin client for {@link ShellDaemon}: sends one command line with the
+ * current directory and environment, copies the output to this process's
+ * standard output and error, and exits with the command's status.
+ *
+ * <pre>
+ * java -cp Jcmdshell-fat.jar xyz.stackpancakes.shell.daemon.DaemonClient [--socket path] (-e command | --stop)
+ * </pre>
+ *
+ * It uses nothing but {@code java.base}, so it starts without loading the
+ * line reader or any of the shell.  Exit status 2 means the command never
+ * ran: bad usage or no daemon listening.
+ */
+public final class DaemonClient
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    private DaemonClient() {}
+
+    public static void main(String[] args)
+    {
+        Path socket = DaemonProtocol.defaultSocket();
+        String command = null;
+        boolean stop = false;
+
+        for (int i = 0; i < args.length; i++)
+        {
+            String a = args[i];
+            boolean hasValue = i + 1 < args.length;
+
+            if ((a.equals("-s") || a.equalsIgnoreCase("--SOCKET")) && hasValue)
+                socket = Path.of(args[++i]);
+            else if (a.startsWith("--socket=") || a.startsWith("--SOCKET="))
+                socket = Path.of(a.substring("--socket=".length()));
+            else if (command != null || stop)
+                usage();
+            else if ((a.equals("-e") || a.equalsIgnoreCase("--EXECUTE")) && hasValue)
+                command = args[++i];
+            else if (a.startsWith("-e="))
+                command = a.substring(3);
+            else if (a.equalsIgnoreCase("--STOP"))
+                stop = true;
+            else
+                usage();
+        }
+        if (command == null && !stop)
+            usage();
+
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX))
+        {
+            try
+            {
+                channel.connect(UnixDomainSocketAddress.of(socket));
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error: No Jcmdshell daemon is listening on " + socket + "; start one with --daemon");
+                System.exit(2);
+            }
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+            out.writeInt(DaemonProtocol.MAGIC);
+            out.writeByte(DaemonProtocol.VERSION);
+            if (stop)
+                out.writeByte(DaemonProtocol.STOP);
+            else
+                writeRun(out, command);
+            out.flush();
+
+            System.exit(readReply(new DataInputStream(Channels.newInputStream(channel))));
+        }
+        catch (IOException e)
+        {
+            System.err.println("Error: Lost the connection to the daemon: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    private static void writeRun(DataOutputStream out, String command) throws IOException
+    {
+        out.writeByte(DaemonProtocol.RUN);
+        DaemonProtocol.writeString(out, Path.of("").toAbsolutePath().toString());
+        Map<String, String> environment = System.getenv();
+        out.writeInt(environment.size());
+        for (Map.Entry<String, String> variable : environment.entrySet())
+        {
+            DaemonProtocol.writeString(out, variable.getKey());
+            DaemonProtocol.writeString(out, variable.getValue());
+        }
+        DaemonProtocol.writeString(out, command);
+    }
+
+    /**
+     * Copies output frames until the exit frame and returns its status.
+     */
+    private static int readReply(DataInputStream in) throws IOException
+    {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try
+        {
+            while (true)
+            {
+                byte kind = in.readByte();
+                int value = in.readInt();
+                if (kind == DaemonProtocol.EXIT)
+                {
+                    System.out.flush();
+                    System.err.flush();
+                    return value;
+                }
+                OutputStream target = switch (kind)
+                {
+                    case DaemonProtocol.STDOUT -> System.out;
+                    case DaemonProtocol.STDERR -> System.err;
+                    default -> throw new DaemonProtocol.ProtocolException("unknown frame " + kind);
+                };
+                for (int remaining = value; remaining > 0; )
+                {
+                    int n = in.read(buffer, 0, Math.min(remaining, buffer.length));
+                    if (n < 0)
+                        throw new EOFException();
+                    target.write(buffer, 0, n);
+                    remaining -= n;
+                }
+                target.flush();
+            }
+        }
+        catch (EOFException e)
+        {
+            throw new IOException("the daemon closed it before the command finished");
+        }
+    }
+
+    private static void usage()
+    {
+        System.err.println("Usage: DaemonClient [--socket <path>] (-e <command> | -e=<command> | --EXECUTE <command> | --STOP)");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,96 @@
+package xyz.stackpancakes.shell.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Wire format between {@link ShellDaemon} and {@link DaemonClient}.
+ *
+ * <p>A client opens one connection per command and sends {@link #MAGIC},
+ * {@link #VERSION} and a request kind.  {@link #RUN} is followed by the
+ * working directory, the environment as a count and name/value pairs, and
+ * the command line; {@link #STOP} by nothing.  Strings are an {@code int}
+ * byte count followed by UTF-8.
+ *
+ * <p>The daemon answers with frames of a kind byte and an {@code int}:
+ * {@link #STDOUT} and {@link #STDERR} carry that many bytes of output,
+ * {@link #EXIT} carries the exit status and ends the reply.
+ */
+final class DaemonProtocol
+{
+    static final int MAGIC = 0x4A435344;
+    static final byte VERSION = 1;
+
+    static final byte RUN = 1;
+    static final byte STOP = 2;
+
+    static final byte STDOUT = 1;
+    static final byte STDERR = 2;
+    static final byte EXIT = 3;
+
+    /** Longest string either side accepts, so a bad peer cannot exhaust the heap. */
+    static final int MAX_STRING = 1 << 20;
+
+    private DaemonProtocol() {}
+
+    /**
+     * The socket used when none is given:
+     * {@code <java.io.tmpdir>/jcmdshell-<user>/daemon.sock}.  The directory
+     * is private to the user, which is what keeps other users out.
+     */
+    static Path defaultSocket()
+    {
+        return Path.of(System.getProperty("java.io.tmpdir"), "jcmdshell-" + System.getProperty("user.name"), "daemon.sock");
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException
+    {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING)
+            throw new ProtocolException("string of " + length + " bytes");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads and checks the greeting, returning the request kind.
+     */
+    static byte readHeader(DataInputStream in) throws IOException
+    {
+        int magic;
+        try
+        {
+            magic = in.readInt();
+        }
+        catch (EOFException e)
+        {
+            throw new ProtocolException("connection closed before the request");
+        }
+        if (magic != MAGIC)
+            throw new ProtocolException("not a Jcmdshell client");
+        byte version = in.readByte();
+        if (version != VERSION)
+            throw new ProtocolException("protocol version " + version + ", expected " + VERSION);
+        return in.readByte();
+    }
+
+    static final class ProtocolException extends IOException
+    {
+        ProtocolException(String message)
+        {
+            super(message);
+        }
+    }
+}
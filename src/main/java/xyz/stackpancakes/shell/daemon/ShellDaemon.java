@@ -0,0 +1,411 @@
+package xyz.stackpancakes.shell.daemon;
+
+import xyz.stackpancakes.REPL;
+import xyz.stackpancakes.shell.core.CommandList;
+import xyz.stackpancakes.shell.script.Script;
+import xyz.stackpancakes.shell.util.Ansi;
+import xyz.stackpancakes.shell.util.CurrentDirectory;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.util.FileSystemUtils;
+import xyz.stackpancakes.shell.util.PrinterUtils;
+import xyz.stackpancakes.shell.util.RemoteSession;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps one warm {@link REPL} behind a Unix domain socket so that short
+ * commands cost a connection instead of a JVM start.  {@link DaemonClient}
+ * sends a command line with its working directory and environment; the
+ * daemon runs it as if it had been typed there and streams standard output,
+ * standard error and the exit status back.
+ *
+ * <p>The shell's state (current directory, {@code System.out}, the last
+ * error) is process-wide, so commands run one at a time.  Each borrows that
+ * state for its duration: the client's directory becomes current, its
+ * streams replace {@code System.out} and {@code System.err}, and a
+ * {@link RemoteSession} hands its environment to external programs.
+ */
+public final class ShellDaemon
+{
+    private static final int FRAME_SIZE = 8192;
+
+    private final REPL repl;
+    private final Path socket;
+    private final boolean defaultSocket;
+    private final PrintStream log = System.err;
+    private final Object commandLock = new Object();
+    private ServerSocketChannel server;
+
+    private ShellDaemon(REPL repl, Path socket)
+    {
+        this.repl = repl;
+        this.defaultSocket = socket == null;
+        this.socket = socket != null ? socket : DaemonProtocol.defaultSocket();
+    }
+
+    /**
+     * Serves commands on {@code socket}, or the default socket when it is
+     * {@code null}, until a client asks the daemon to stop.  Returns
+     * {@code false} if the socket could not be opened.
+     */
+    public static boolean serve(REPL repl, Path socket)
+    {
+        return new ShellDaemon(repl, socket).serve();
+    }
+
+    private boolean serve()
+    {
+        try
+        {
+            server = bind();
+        }
+        catch (IOException e)
+        {
+            ErrorPrinter.print(Ansi.withForeground("Error", Ansi.Foreground.RED) + ": Cannot listen on " + FileSystemUtils.describeFailure(socket, e));
+            return false;
+        }
+
+        System.setIn(InputStream.nullInputStream());
+        Runtime.getRuntime().addShutdownHook(new Thread(this::removeSocket));
+        log.println("Jcmdshell daemon listening on " + socket);
+
+        try (ServerSocketChannel _ = server)
+        {
+            while (true)
+            {
+                SocketChannel client = server.accept();
+                Thread.ofPlatform().daemon().name("daemon-client").start(() -> handle(client));
+            }
+        }
+        catch (ClosedChannelException _)
+        {
+            log.println("Jcmdshell daemon stopped");
+        }
+        catch (IOException e)
+        {
+            ErrorPrinter.print(Ansi.withForeground("Error", Ansi.Foreground.RED) + ": Daemon failed: " + e.getMessage());
+            return false;
+        }
+        finally
+        {
+            removeSocket();
+        }
+        return true;
+    }
+
+    /**
+     * Binds the socket so only this user can connect: the default socket in
+     * a directory only this user can enter, a socket the user chose in the
+     * directory they named, with the socket itself restricted to its owner.
+     * A socket file left behind by a daemon that died is replaced; one that
+     * still accepts connections means another daemon is running.
+     */
+    private ServerSocketChannel bind() throws IOException
+    {
+        Path directory = socket.toAbsolutePath().getParent();
+        if (directory != null && defaultSocket)
+            securePrivateDirectory(directory);
+        else if (directory != null)
+            Files.createDirectories(directory);
+
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socket);
+        if (Files.exists(socket))
+        {
+            if (isListening(address))
+                throw new IOException("another daemon is already listening");
+            Files.delete(socket);
+        }
+
+        ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.bind(address);
+        if (!defaultSocket && FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+        {
+            try
+            {
+                Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+            }
+            catch (IOException e)
+            {
+                channel.close();
+                throw e;
+            }
+        }
+        return channel;
+    }
+
+    /**
+     * Makes sure only this user can reach the socket.  The directory is
+     * created with mode 0700 in one step; one that already exists, perhaps
+     * planted in a shared temporary directory by someone else, must be a
+     * real directory owned by this user with exactly that mode.
+     */
+    private static void securePrivateDirectory(Path directory) throws IOException
+    {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+        {
+            Files.createDirectories(directory);
+            return;
+        }
+
+        Set<PosixFilePermission> ownerOnly = PosixFilePermissions.fromString("rwx------");
+        if (directory.getParent() != null)
+            Files.createDirectories(directory.getParent());
+        try
+        {
+            Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(ownerOnly));
+        }
+        catch (FileAlreadyExistsException _) {}
+
+        PosixFileAttributes attributes = Files.readAttributes(directory, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (attributes.isSymbolicLink())
+            throw new IOException(directory + " is a symbolic link");
+        if (!attributes.isDirectory())
+            throw new IOException(directory + " is not a directory");
+        if (!attributes.owner().equals(user))
+            throw new IOException(directory + " is owned by " + attributes.owner().getName() + ", not " + user.getName());
+        if (!attributes.permissions().equals(ownerOnly))
+            throw new IOException(directory + " has mode " + PosixFilePermissions.toString(attributes.permissions())
+                    + "; it must be rwx------");
+    }
+
+    private static boolean isListening(UnixDomainSocketAddress address)
+    {
+        try (SocketChannel _ = SocketChannel.open(address))
+        {
+            return true;
+        }
+        catch (IOException _)
+        {
+            return false;
+        }
+    }
+
+    private void removeSocket()
+    {
+        try
+        {
+            Files.deleteIfExists(socket);
+        }
+        catch (IOException _) {}
+    }
+
+    private void handle(SocketChannel channel)
+    {
+        try (channel)
+        {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            byte kind = DaemonProtocol.readHeader(in);
+            if (kind == DaemonProtocol.STOP)
+            {
+                sendExit(channel, 0);
+                server.close();
+                return;
+            }
+            if (kind != DaemonProtocol.RUN)
+                throw new DaemonProtocol.ProtocolException("unknown request " + kind);
+
+            String directory = DaemonProtocol.readString(in);
+            int count = in.readInt();
+            if (count < 0 || count > DaemonProtocol.MAX_STRING)
+                throw new DaemonProtocol.ProtocolException("environment of " + count + " variables");
+            Map<String, String> environment = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++)
+                environment.put(DaemonProtocol.readString(in), DaemonProtocol.readString(in));
+            String command = DaemonProtocol.readString(in);
+
+            sendExit(channel, run(channel, Path.of(directory), environment, command));
+        }
+        catch (IOException e)
+        {
+            log.println("Jcmdshell daemon: dropped a client: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs {@code command} with the client's directory, environment and
+     * streams in place of the daemon's, and returns its exit status: 0 for
+     * success, 1 for failure, as for {@code -e}.
+     */
+    private int run(SocketChannel channel, Path directory, Map<String, String> environment, String command)
+    {
+        Hangup hangup = new Hangup(channel);
+        try (PrintStream out = new PrintStream(new BufferedOutputStream(new FrameOutputStream(channel, DaemonProtocol.STDOUT, hangup), FRAME_SIZE), true);
+             PrintStream err = new PrintStream(new BufferedOutputStream(new FrameOutputStream(channel, DaemonProtocol.STDERR, hangup), FRAME_SIZE), true))
+        {
+            if (!Files.isDirectory(directory))
+            {
+                PrinterUtils.printFormatted(Ansi.withForeground("Error", Ansi.Foreground.RED) + ": The client's directory " + directory + " does not exist here", err);
+                return 2;
+            }
+
+            synchronized (commandLock)
+            {
+                PrintStream originalOut = System.out;
+                PrintStream originalErr = System.err;
+                Path originalDirectory = CurrentDirectory.get();
+                System.setOut(out);
+                System.setErr(err);
+                CurrentDirectory.set(directory);
+                RemoteSession.set(environment);
+                hangup.start();
+                try
+                {
+                    boolean succeeded = true;
+                    for (CommandList line : Script.parse(command, repl::parse).lines())
+                    {
+                        succeeded = repl.execute(line);
+                        out.flush();
+                    }
+                    PrinterUtils.printFormatted("", succeeded ? out : err);
+                    return succeeded ? 0 : 1;
+                }
+                catch (RuntimeException e)
+                {
+                    ErrorPrinter.print(Ansi.withForeground("Error", Ansi.Foreground.RED) + ": " + e);
+                    return 1;
+                }
+                finally
+                {
+                    hangup.stop();
+                    out.flush();
+                    err.flush();
+                    RemoteSession.set(null);
+                    CurrentDirectory.set(originalDirectory);
+                    System.setOut(originalOut);
+                    System.setErr(originalErr);
+                }
+            }
+        }
+    }
+
+    private static void sendExit(SocketChannel channel, int status) throws IOException
+    {
+        ByteBuffer frame = ByteBuffer.allocate(5).put(DaemonProtocol.EXIT).putInt(status).flip();
+        synchronized (channel)
+        {
+            while (frame.hasRemaining())
+                channel.write(frame);
+        }
+    }
+
+    /**
+     * Watches the connection while a command runs.  A client sends nothing
+     * after its request, so a read that returns means it has gone, typically
+     * to Ctrl+C, and the command is interrupted the way Ctrl+C at the
+     * daemon's own terminal would interrupt it.  The watcher is never
+     * interrupted, since that would close the channel; it ends when the
+     * connection does.
+     */
+    private static final class Hangup
+    {
+        private final SocketChannel channel;
+        private volatile boolean running;
+
+        Hangup(SocketChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        void start()
+        {
+            running = true;
+            Thread.ofPlatform().daemon().name("daemon-hangup").start(() ->
+            {
+                try
+                {
+                    channel.read(ByteBuffer.allocate(1));
+                }
+                catch (IOException _) {}
+                hungUp();
+            });
+        }
+
+        /** Called when the client has gone, from the watcher or a failed write. */
+        void hungUp()
+        {
+            if (running)
+            {
+                running = false;
+                FileSystemUtils.interruptCurrentProcess();
+            }
+        }
+
+        void stop()
+        {
+            running = false;
+        }
+    }
+
+    /**
+     * Sends everything written to it as frames of one kind.  Writing to a
+     * client that has gone fails, which makes the command's
+     * {@link PrintStream} report {@code checkError()} so it stops early.
+     */
+    private static final class FrameOutputStream extends OutputStream
+    {
+        private final SocketChannel channel;
+        private final byte kind;
+        private final Hangup hangup;
+
+        FrameOutputStream(SocketChannel channel, byte kind, Hangup hangup)
+        {
+            this.channel = channel;
+            this.kind = kind;
+            this.hangup = hangup;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            if (len == 0)
+                return;
+            ByteBuffer header = ByteBuffer.allocate(5).put(kind).putInt(len).flip();
+            ByteBuffer body = ByteBuffer.wrap(b, off, len);
+            try
+            {
+                synchronized (channel)
+                {
+                    while (header.hasRemaining() || body.hasRemaining())
+                        channel.write(new ByteBuffer[] {header, body});
+                }
+            }
+            catch (IOException e)
+            {
+                hangup.hungUp();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package xyz.stackpancakes.shell.job;
+
+import xyz.stackpancakes.shell.util.CurrentDirectory;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+/**
+ * One command line running in the background, supervised by its own
+ * virtual thread.  The processes it starts, including those of pipeline
+ * stages on other threads, are recorded through {@link JobTable#track} so
+ * {@link #kill()} can reach them.  The job starts in the shell's current
+ * directory but keeps its own, and its own last error, from then on.
+ */
+public final class Job
+{
+    public enum State
+    {
+        Running,
+        Done,
+        Failed,
+        Killed
+    }
+
+    private final int id;
+    private final String command;
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+    private final Queue<Process> processes = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile State state = State.Running;
+    private volatile Thread thread;
+
+    Job(int id, String command)
+    {
+        this.id = id;
+        this.command = command;
+    }
+
+    public int id()
+    {
+        return id;
+    }
+
+    public String command()
+    {
+        return command;
+    }
+
+    public State state()
+    {
+        return state;
+    }
+
+    /**
+     * How long the job has run, or ran if it has finished.
+     */
+    public long elapsedNanos()
+    {
+        return (finished.getCount() == 0 ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    void start(BooleanSupplier body, Runnable onFinish)
+    {
+        Path directory = CurrentDirectory.get();
+        thread = Thread.ofVirtual().name("job-" + id).start(() ->
+        {
+            JobTable.enter(this);
+            CurrentDirectory.isolate(directory);
+            ErrorPrinter.isolate();
+            boolean succeeded = false;
+            try
+            {
+                succeeded = body.getAsBoolean();
+            }
+            catch (RuntimeException _) {}
+            finally
+            {
+                if (state == State.Running)
+                    state = succeeded ? State.Done : State.Failed;
+                processes.clear();
+                endNanos = System.nanoTime();
+                finished.countDown();
+                onFinish.run();
+            }
+        });
+    }
+
+    void track(Process process)
+    {
+        processes.add(process);
+        if (state == State.Killed)
+            destroy(process, false);
+    }
+
+    /**
+     * Stops the job: its processes and their children are destroyed and its
+     * thread is interrupted, which ends waits such as {@code TAIL -f}.
+     * Fork/join work notices through {@link JobTable#cancellation}.
+     */
+    public void kill()
+    {
+        kill(false);
+    }
+
+    /**
+     * Stops the job as {@link #kill()} does; {@code forcibly} kills its
+     * processes outright instead of asking them to terminate.
+     */
+    public void kill(boolean forcibly)
+    {
+        if (state != State.Running)
+            return;
+        state = State.Killed;
+        processes.forEach(process -> destroy(process, forcibly));
+        Thread t = thread;
+        if (t != null)
+            t.interrupt();
+    }
+
+    private static void destroy(Process process, boolean forcibly)
+    {
+        process.descendants().forEach(forcibly ? ProcessHandle::destroyForcibly : ProcessHandle::destroy);
+        if (forcibly)
+            process.destroyForcibly();
+        else
+            process.destroy();
+    }
+
+    /**
+     * Waits for the job to finish and returns whether it succeeded.
+     */
+    public boolean await() throws InterruptedException
+    {
+        finished.await();
+        return state == State.Done;
+    }
+}
@@ -0,0 +1,157 @@
+package xyz.stackpancakes.shell.job;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * The background jobs of this shell, numbered from 1 like a POSIX shell's.
+ * A finished job is reported once, through the notifier when there is one
+ * (the interactive session prints it above the prompt), otherwise by the
+ * next {@code JOBS}, {@code WAIT} or {@code FG} that sees it, and is then
+ * dropped from the table.
+ */
+public final class JobTable
+{
+    private static final TreeMap<Integer, Job> jobs = new TreeMap<>();
+    private static final InheritableThreadLocal<Job> current = new InheritableThreadLocal<>();
+    private static volatile Consumer<String> notifier;
+
+    private JobTable() {}
+
+    /**
+     * Runs {@code body} as a new background job and returns at once.
+     */
+    public static Job start(String command, BooleanSupplier body)
+    {
+        Job job;
+        synchronized (jobs)
+        {
+            int id = jobs.isEmpty() ? 1 : jobs.lastKey() + 1;
+            job = new Job(id, command);
+            jobs.put(id, job);
+        }
+        job.start(body, () -> finished(job));
+        return job;
+    }
+
+    /**
+     * Sets where completion notices go, or {@code null} to keep finished
+     * jobs in the table until they are listed or waited for.
+     */
+    public static void setNotifier(Consumer<String> onFinish)
+    {
+        notifier = onFinish;
+    }
+
+    static void enter(Job job)
+    {
+        current.set(job);
+    }
+
+    /**
+     * Whether the calling thread works for a background job, either as its
+     * supervisor or as a pipeline stage it started.
+     */
+    public static boolean inJob()
+    {
+        return current.get() != null;
+    }
+
+    /**
+     * Records {@code process} as belonging to the calling thread's job so
+     * that {@code KILL} can stop it.  Returns {@code false}, recording
+     * nothing, outside a job.
+     */
+    public static boolean track(Process process)
+    {
+        Job job = current.get();
+        if (job == null)
+            return false;
+        job.track(process);
+        return true;
+    }
+
+    /**
+     * Returns a check that turns {@code true} once the calling thread's job
+     * is killed or the calling thread is interrupted, for work it hands to
+     * other threads: a fork/join pool keeps running when the thread that
+     * invoked it is interrupted, so its tasks poll this instead.
+     */
+    public static BooleanSupplier cancellation()
+    {
+        Job job = current.get();
+        Thread caller = Thread.currentThread();
+        return () -> caller.isInterrupted() || job != null && job.state() == Job.State.Killed;
+    }
+
+    public static List<Job> list()
+    {
+        synchronized (jobs)
+        {
+            return List.copyOf(jobs.values());
+        }
+    }
+
+    /**
+     * Looks up {@code %n} or {@code n}; {@code null} means the most recent
+     * job.
+     */
+    public static Optional<Job> find(String spec)
+    {
+        synchronized (jobs)
+        {
+            if (spec == null)
+                return jobs.isEmpty() ? Optional.empty() : Optional.of(jobs.lastEntry().getValue());
+            try
+            {
+                return Optional.ofNullable(jobs.get(Integer.parseInt(spec.startsWith("%") ? spec.substring(1) : spec)));
+            }
+            catch (NumberFormatException _)
+            {
+                return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Drops a finished job from the table once it has been reported.
+     */
+    public static void remove(Job job)
+    {
+        if (job.state() == Job.State.Running)
+            return;
+        synchronized (jobs)
+        {
+            jobs.remove(job.id(), job);
+        }
+    }
+
+    /**
+     * Waits for every job in the table, so a script or {@code -e} run does
+     * not exit from under its background work.
+     */
+    public static void awaitAll() throws InterruptedException
+    {
+        for (Job job : list())
+            job.await();
+    }
+
+    public static String describe(Job job)
+    {
+        long seconds = TimeUnit.NANOSECONDS.toSeconds(job.elapsedNanos());
+        return String.format("[%d]  %-8s %3d:%02d  %s", job.id(), job.state(), seconds / 60, seconds % 60, job.command());
+    }
+
+    private static void finished(Job job)
+    {
+        Consumer<String> onFinish = notifier;
+        if (onFinish == null)
+            return;
+        onFinish.accept(describe(job));
+        remove(job);
+    }
+}
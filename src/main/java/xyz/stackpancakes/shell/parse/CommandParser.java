@@ -0,0 +1,158 @@
+package xyz.stackpancakes.shell.parse;
+
+import xyz.stackpancakes.shell.core.CommandLine;
+import xyz.stackpancakes.shell.core.CommandList;
+import xyz.stackpancakes.shell.core.Redirection;
+import xyz.stackpancakes.shell.core.SimpleCommand;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the {@link CommandList} of a line while the {@link Lexer} scans
+ * it, so each character is looked at once and no intermediate token list
+ * or re-joined string is made.  The grammar, loosest binding first:
+ *
+ * <pre>
+ * list     := pipeline ((';' | '&amp;' | '&amp;&amp;' | '||') pipeline)* [';' | '&amp;']
+ * pipeline := command ('|' command)*
+ * command  := (word | redirect)+
+ * redirect := ('&lt;' | '&gt;' | '&gt;&gt;' | '2&gt;' | '2&gt;&gt;') word | '2&gt;&amp;1'
+ * </pre>
+ *
+ * A line that does not match comes back as {@link CommandList#invalid}.
+ */
+public final class CommandParser
+{
+    private final String text;
+    private final Lexer lexer;
+    private Lexer.Token token;
+
+    private CommandParser(String text)
+    {
+        this.text = text;
+        this.lexer = new Lexer(text);
+    }
+
+    public static CommandList parse(String input)
+    {
+        CommandParser parser = new CommandParser(input.trim());
+        try
+        {
+            return parser.list();
+        }
+        catch (SyntaxError e)
+        {
+            return CommandList.invalid(parser.text, e.getMessage());
+        }
+    }
+
+    private void advance()
+    {
+        token = lexer.next();
+    }
+
+    private CommandList list() throws SyntaxError
+    {
+        List<CommandList.Step> steps = new ArrayList<>(1);
+        CommandList.Connector connector = CommandList.Connector.ALWAYS;
+        advance();
+        while (token != Lexer.Token.END)
+        {
+            int start = lexer.tokenStart();
+            List<SimpleCommand> commands = pipeline();
+            String stepText = text.substring(start, lexer.tokenStart()).trim();
+            steps.add(new CommandList.Step(connector, new CommandLine(stepText, commands, token == Lexer.Token.AMPERSAND)));
+            if (token == Lexer.Token.END)
+                break;
+
+            connector = switch (token)
+            {
+                case AND -> CommandList.Connector.AND;
+                case OR -> CommandList.Connector.OR;
+                case SEMICOLON, AMPERSAND -> CommandList.Connector.ALWAYS;
+                default -> throw near();
+            };
+            String operator = lexer.text();
+            advance();
+            if (token == Lexer.Token.END && connector != CommandList.Connector.ALWAYS)
+                throw new SyntaxError("Syntax error: missing command after '" + operator + "'");
+        }
+        return new CommandList(text, steps, null);
+    }
+
+    private List<SimpleCommand> pipeline() throws SyntaxError
+    {
+        List<SimpleCommand> commands = new ArrayList<>(1);
+        commands.add(command());
+        while (token == Lexer.Token.PIPE)
+        {
+            advance();
+            if (token == Lexer.Token.END)
+                throw new SyntaxError("Syntax error: missing command after '|'");
+            commands.add(command());
+        }
+        return commands;
+    }
+
+    private SimpleCommand command() throws SyntaxError
+    {
+        List<String> words = new ArrayList<>();
+        List<Redirection> redirections = List.of();
+        while (true)
+        {
+            if (token == Lexer.Token.WORD)
+            {
+                words.add(lexer.word());
+                advance();
+                continue;
+            }
+            Redirection.Kind kind = redirectionKind(token);
+            if (kind == null)
+                break;
+            if (redirections.isEmpty())
+                redirections = new ArrayList<>(2);
+            if (kind == Redirection.Kind.ERROR_TO_OUTPUT)
+            {
+                redirections.add(new Redirection(kind, null));
+                advance();
+                continue;
+            }
+            advance();
+            if (token != Lexer.Token.WORD)
+                throw new SyntaxError("Syntax error: missing file name after '" + kind.operator() + "'");
+            redirections.add(new Redirection(kind, lexer.word()));
+            advance();
+        }
+        if (words.isEmpty() && redirections.isEmpty())
+            throw near();
+        return new SimpleCommand(words, redirections);
+    }
+
+    private static Redirection.Kind redirectionKind(Lexer.Token token)
+    {
+        return switch (token)
+        {
+            case INPUT -> Redirection.Kind.INPUT;
+            case OUTPUT -> Redirection.Kind.OUTPUT;
+            case APPEND -> Redirection.Kind.APPEND;
+            case ERROR -> Redirection.Kind.ERROR;
+            case ERROR_APPEND -> Redirection.Kind.ERROR_APPEND;
+            case ERROR_TO_OUTPUT -> Redirection.Kind.ERROR_TO_OUTPUT;
+            default -> null;
+        };
+    }
+
+    private SyntaxError near()
+    {
+        return new SyntaxError("Syntax error near '" + lexer.text() + "'");
+    }
+
+    private static final class SyntaxError extends Exception
+    {
+        SyntaxError(String message)
+        {
+            super(message, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package xyz.stackpancakes.shell.parse;
+
+/**
+ * Splits a command line into words and operators in a single left-to-right
+ * scan, one token per {@link #next()} call, without building a token list.
+ * A word ends at whitespace or at an operator character outside quotes;
+ * the quotes themselves are dropped.  Double and single quotes work alike,
+ * and each keeps the other kind literal, except that a single quote inside a
+ * word is an apostrophe.  There are no escape characters:
+ * a backslash is an ordinary character, since it separates Windows paths.
+ * Words without quotes are one {@code substring} of the line, quoted ones
+ * go through a builder made on first use and reused after that.
+ *
+ * <p>{@code 2>}, {@code 2>>} and {@code 2>&1} are operators only where a
+ * word would start, so {@code file2>out} is the word {@code file2}
+ * followed by {@code >}.
+ */
+final class Lexer
+{
+    enum Token
+    {
+        WORD,
+        PIPE,
+        AND,
+        OR,
+        SEMICOLON,
+        AMPERSAND,
+        INPUT,
+        OUTPUT,
+        APPEND,
+        ERROR,
+        ERROR_APPEND,
+        ERROR_TO_OUTPUT,
+        END
+    }
+
+    private final String line;
+    private StringBuilder unquoted;
+    private int position;
+    private int tokenStart;
+    private String word;
+
+    Lexer(String line)
+    {
+        this.line = line;
+    }
+
+    Token next()
+    {
+        int length = line.length();
+        while (position < length && Character.isWhitespace(line.charAt(position)))
+            position++;
+        tokenStart = position;
+        word = null;
+        if (position == length)
+            return Token.END;
+
+        char c = line.charAt(position);
+        char following = charAt(position + 1);
+        switch (c)
+        {
+            case '|':
+                return operator(following == '|' ? 2 : 1, following == '|' ? Token.OR : Token.PIPE);
+            case '&':
+                return operator(following == '&' ? 2 : 1, following == '&' ? Token.AND : Token.AMPERSAND);
+            case ';':
+                return operator(1, Token.SEMICOLON);
+            case '<':
+                return operator(1, Token.INPUT);
+            case '>':
+                return operator(following == '>' ? 2 : 1, following == '>' ? Token.APPEND : Token.OUTPUT);
+            case '2':
+                if (following != '>')
+                    break;
+                if (line.startsWith("&1", position + 2))
+                    return operator(4, Token.ERROR_TO_OUTPUT);
+                return charAt(position + 2) == '>' ? operator(3, Token.ERROR_APPEND) : operator(2, Token.ERROR);
+            default:
+                break;
+        }
+        return readWord();
+    }
+
+    /** The value of the last {@link Token#WORD}, quotes removed. */
+    String word()
+    {
+        return word;
+    }
+
+    /** The last token as written, for error messages. */
+    String text()
+    {
+        return line.substring(tokenStart, position);
+    }
+
+    /** Where the last token starts; the line's length at {@link Token#END}. */
+    int tokenStart()
+    {
+        return tokenStart;
+    }
+
+    private Token operator(int width, Token token)
+    {
+        position += width;
+        return token;
+    }
+
+    private Token readWord()
+    {
+        int start = position;
+        int length = line.length();
+        char quote = 0;
+        StringBuilder value = null;
+        for (; position < length; position++)
+        {
+            char c = line.charAt(position);
+            boolean delimiter = quote == 0 ? opensQuote(c, start) : c == quote;
+            if (!delimiter)
+            {
+                if (quote == 0 && (Character.isWhitespace(c) || isOperator(c)))
+                    break;
+                if (value != null)
+                    value.append(c);
+                continue;
+            }
+            if (value == null)
+            {
+                if (unquoted == null)
+                    unquoted = new StringBuilder();
+                unquoted.setLength(0);
+                value = unquoted.append(line, start, position);
+            }
+            quote = quote == 0 ? c : 0;
+        }
+        word = value != null ? value.toString() : line.substring(start, position);
+        return Token.WORD;
+    }
+
+    /**
+     * A double quote always opens a quoted part, running to the end of the
+     * line if it is never closed.  A single quote only does at the start of
+     * the word or right after {@code =}, and only when a second one follows,
+     * so an apostrophe as in {@code don't} stays literal wherever the line
+     * has other quotes.
+     */
+    private boolean opensQuote(char c, int wordStart)
+    {
+        if (c == '"')
+            return true;
+        return c == '\''
+                && (position == wordStart || line.charAt(position - 1) == '=')
+                && line.indexOf('\'', position + 1) >= 0;
+    }
+
+    private char charAt(int index)
+    {
+        return index < line.length() ? line.charAt(index) : '\0';
+    }
+
+    private static boolean isOperator(char c)
+    {
+        return c == '|' || c == '&' || c == ';' || c == '<' || c == '>';
+    }
+}
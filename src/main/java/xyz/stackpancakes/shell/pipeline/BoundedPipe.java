@@ -0,0 +1,238 @@
+package xyz.stackpancakes.shell.pipeline;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed-size byte ring buffer joining two pipeline stages.  Writers block
+ * while the buffer is full and readers block while it is empty, so a fast
+ * producer is throttled to the pace of its consumer instead of filling the
+ * heap.  Closing the read end makes further writes fail with
+ * {@link BrokenPipeException}, which lets an upstream stage stop early once
+ * its consumer has gone away.
+ */
+public final class BoundedPipe
+{
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final byte[] buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final InputStream source = new Source();
+    private final OutputStream sink = new Sink();
+    private int head;
+    private int count;
+    private boolean writerClosed;
+    private boolean readerClosed;
+
+    public BoundedPipe()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+    public BoundedPipe(int capacity)
+    {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        buffer = new byte[capacity];
+    }
+    public InputStream source()
+    {
+        return source;
+    }
+    public OutputStream sink()
+    {
+        return sink;
+    }
+
+    private int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0)
+            return 0;
+        lock.lock();
+        try
+        {
+            while (count == 0 && !writerClosed && !readerClosed)
+                notEmpty.await();
+            if (readerClosed)
+                throw new IOException("Pipe closed");
+            if (count == 0)
+                return -1;
+            int n = Math.min(len, count);
+            int first = Math.min(n, buffer.length - head);
+            System.arraycopy(buffer, head, b, off, first);
+            if (n > first)
+                System.arraycopy(buffer, 0, b, off + first, n - first);
+            head = (head + n) % buffer.length;
+            count -= n;
+            notFull.signalAll();
+            return n;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading from pipe");
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+    private void write(byte[] b, int off, int len) throws IOException
+    {
+        lock.lock();
+        try
+        {
+            while (len > 0)
+            {
+                while (count == buffer.length && !readerClosed && !writerClosed)
+                    notFull.await();
+                if (readerClosed)
+                    throw new BrokenPipeException();
+                if (writerClosed)
+                    throw new IOException("Pipe closed");
+                int tail = (head + count) % buffer.length;
+                int n = Math.min(len, buffer.length - count);
+                int first = Math.min(n, buffer.length - tail);
+                System.arraycopy(b, off, buffer, tail, first);
+                if (n > first)
+                    System.arraycopy(b, off + first, buffer, 0, n - first);
+                count += n;
+                off += n;
+                len -= n;
+                notEmpty.signalAll();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing to pipe");
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+    private void closeWriter()
+    {
+        lock.lock();
+        try
+        {
+            writerClosed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+    private void closeReader()
+    {
+        lock.lock();
+        try
+        {
+            readerClosed = true;
+            count = 0;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The reading end.  A pipe has one reader, the next stage, so the
+     * single-byte {@link #read()} reuses one array.
+     */
+    private final class Source extends InputStream
+    {
+        private final byte[] one = new byte[1];
+
+        @Override
+        public int read() throws IOException
+        {
+            int n = BoundedPipe.this.read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xFF;
+        }
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            return BoundedPipe.this.read(b, off, len);
+        }
+        @Override
+        public int available()
+        {
+            lock.lock();
+            try
+            {
+                return count;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+        @Override
+        public void close()
+        {
+            closeReader();
+        }
+    }
+
+    private final class Sink extends OutputStream
+    {
+        @Override
+        public void write(int b) throws IOException
+        {
+            BoundedPipe.this.write(new byte[] { (byte) b }, 0, 1);
+        }
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            BoundedPipe.this.write(b, off, len);
+        }
+        /**
+         * Fails once the consumer has gone, so a stage that has nothing to
+         * write can still notice by flushing.
+         */
+        @Override
+        public void flush() throws IOException
+        {
+            lock.lock();
+            try
+            {
+                if (readerClosed)
+                    throw new BrokenPipeException();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+        @Override
+        public void close()
+        {
+            closeWriter();
+        }
+    }
+
+    /**
+     * Raised when a stage writes into a pipe whose consumer has already
+     * finished.  Stages treat it as a normal early exit, the same way a
+     * process receiving {@code SIGPIPE} would stop.
+     */
+    public static final class BrokenPipeException extends IOException
+    {
+        public BrokenPipeException()
+        {
+            super("Broken pipe");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package xyz.stackpancakes.shell.pipeline;
+
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.job.JobTable;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.util.RemoteSession;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pipeline stage backed by an external process.  Upstream data is pumped
+ * into the process on a separate thread while its standard output
+ * is streamed downstream, so neither side waits for the other to finish.
+ */
+public final class ExternalStage implements PipelineStage
+{
+    private final List<String> command;
+    private final Path directory;
+    private final Redirections redirections;
+
+    public ExternalStage(String executable, List<String> args, Path directory, Redirections redirections)
+    {
+        List<String> cmd = new ArrayList<>(args.size() + 1);
+        cmd.add(executable);
+        cmd.addAll(args);
+        this.command = List.copyOf(cmd);
+        this.directory = directory;
+        this.redirections = redirections;
+    }
+
+    public Redirections redirections()
+    {
+        return redirections;
+    }
+
+    /**
+     * Returns a fresh builder for this stage with standard error inherited
+     * and the segment's redirections applied, for callers that wire several
+     * processes together themselves.
+     */
+    public ProcessBuilder processBuilder()
+    {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(directory.toFile());
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        RemoteSession.applyTo(pb);
+        redirections.applyTo(pb);
+        return pb;
+    }
+
+    @Override
+    public CommandResult run(InputStream in, OutputStream out, OutputStream err) throws IOException, InterruptedException
+    {
+        ProcessBuilder pb = processBuilder();
+        boolean pumpErr = (err != System.err || RemoteSession.active()) && redirections.error() == null && !redirections.errorToOutput();
+        if (pumpErr)
+            pb.redirectError(ProcessBuilder.Redirect.PIPE);
+        Process process = pb.start();
+        JobTable.track(process);
+        Thread feeder = Thread.ofPlatform().daemon().name("pipeline-feed-" + command.getFirst()).start(() ->
+        {
+            try (OutputStream stdin = process.getOutputStream())
+            {
+                if (redirections.input() == null)
+                    in.transferTo(stdin);
+            }
+            catch (IOException _) {}
+        });
+        Thread errPump = pumpErr ? Thread.ofPlatform().daemon().name("pipeline-err-" + command.getFirst()).start(() ->
+        {
+            try (InputStream stderr = process.getErrorStream())
+            {
+                stderr.transferTo(err);
+            }
+            catch (IOException _) {}
+        }) : null;
+        boolean brokenPipe = false;
+        int exitCode;
+        try (InputStream stdout = process.getInputStream())
+        {
+            stdout.transferTo(out);
+        }
+        catch (BoundedPipe.BrokenPipeException e)
+        {
+            brokenPipe = true;
+            process.destroy();
+        }
+        catch (IOException e)
+        {
+            process.destroyForcibly();
+            feeder.interrupt();
+            throw e;
+        }
+        try
+        {
+            exitCode = process.waitFor();
+        }
+        catch (InterruptedException e)
+        {
+            process.destroyForcibly();
+            throw e;
+        }
+        finally
+        {
+            feeder.interrupt();
+        }
+        feeder.join();
+        if (errPump != null)
+            errPump.join();
+        if (brokenPipe)
+            return CommandResult.Success;
+        if (exitCode != 0)
+        {
+            ErrorPrinter.setLastError("Error: external command exited with code " + exitCode);
+            return CommandResult.Failure;
+        }
+        return CommandResult.Success;
+    }
+}
@@ -0,0 +1,78 @@
+package xyz.stackpancakes.shell.pipeline;
+
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.job.JobTable;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.util.RemoteSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts a pipeline made only of external programs with
+ * {@link ProcessBuilder#startPipeline}.  The processes are connected by
+ * operating-system pipes and redirections are handed to the kernel as
+ * {@link ProcessBuilder.Redirect}s, so no data passes through the JVM.
+ */
+public final class NativePipeline
+{
+    private NativePipeline() {}
+
+    /**
+     * Whether the stages can be joined by kernel pipes.  Operating-system
+     * pipes cannot carry a file redirection in the middle of the chain, so
+     * only the first stage may redirect its input and only the last its
+     * output; anything else runs on the streaming {@link Pipeline}.  Nor
+     * can a daemon's client inherit the last stage's output, so commands
+     * from a {@link RemoteSession} always stream.
+     */
+    public static boolean supports(List<ExternalStage> stages)
+    {
+        if (RemoteSession.active())
+            return false;
+        for (int i = 0; i < stages.size(); i++)
+        {
+            Redirections r = stages.get(i).redirections();
+            if (i > 0 && r.input() != null)
+                return false;
+            if (i < stages.size() - 1 && r.output() != null)
+                return false;
+        }
+        return true;
+    }
+
+    public static CommandResult run(List<ExternalStage> stages) throws IOException, InterruptedException
+    {
+        List<ProcessBuilder> builders = new ArrayList<>(stages.size());
+        for (ExternalStage stage : stages)
+            builders.add(stage.processBuilder());
+        boolean inputRedirected = stages.getFirst().redirections().input() != null;
+        ProcessBuilder last = builders.getLast();
+        if (stages.getLast().redirections().output() == null)
+            last.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+
+        System.out.flush();
+        List<Process> processes = ProcessBuilder.startPipeline(builders);
+        processes.forEach(JobTable::track);
+        if (!inputRedirected)
+            processes.getFirst().getOutputStream().close();
+        try
+        {
+            int exitCode = 0;
+            for (Process process : processes)
+                exitCode = process.waitFor();
+            if (exitCode != 0)
+            {
+                ErrorPrinter.setLastError("Error: external command exited with code " + exitCode);
+                return CommandResult.Failure;
+            }
+            return CommandResult.Success;
+        }
+        catch (InterruptedException e)
+        {
+            processes.forEach(Process::destroyForcibly);
+            throw e;
+        }
+    }
+}
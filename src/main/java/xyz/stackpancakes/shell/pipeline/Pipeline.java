@@ -0,0 +1,152 @@
+package xyz.stackpancakes.shell.pipeline;
+
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every stage of a pipeline concurrently, each on its own thread,
+ * joined by {@link BoundedPipe}s.  Stages spend most of their time in
+ * blocking process I/O, so they get platform threads rather than virtual
+ * threads that would pin the carrier pool.  Memory use is bounded by the pipe
+ * capacity rather than by the size of the data flowing through, and output
+ * of the last stage reaches the caller as soon as it is produced.  As in a
+ * POSIX shell, the result of the pipeline is the result of its last stage.
+ */
+public final class Pipeline
+{
+    public static final long STOP_TIMEOUT_MILLIS = 2_000;
+
+    private final List<PipelineStage> stages;
+    private final int pipeCapacity;
+
+    public Pipeline(List<PipelineStage> stages)
+    {
+        this(stages, BoundedPipe.DEFAULT_CAPACITY);
+    }
+    public Pipeline(List<PipelineStage> stages, int pipeCapacity)
+    {
+        if (stages.isEmpty())
+            throw new IllegalArgumentException("A pipeline needs at least one stage");
+        this.stages = List.copyOf(stages);
+        this.pipeCapacity = pipeCapacity;
+    }
+
+    /**
+     * Runs the pipeline to completion.  {@code input} feeds the first stage,
+     * {@code output} receives the last stage's output and {@code error} is
+     * shared by every stage; all three belong to the caller and are flushed
+     * but never closed.
+     */
+    public CommandResult run(InputStream input, OutputStream output, OutputStream error) throws InterruptedException
+    {
+        int n = stages.size();
+        CommandResult[] results = new CommandResult[n];
+        List<Thread> threads = new ArrayList<>(n);
+        InputStream in = input;
+        for (int i = 0; i < n; i++)
+        {
+            boolean first = i == 0;
+            boolean last = i == n - 1;
+            OutputStream out;
+            InputStream next = null;
+            if (last)
+                out = output;
+            else
+            {
+                BoundedPipe pipe = new BoundedPipe(pipeCapacity);
+                out = pipe.sink();
+                next = pipe.source();
+            }
+            int index = i;
+            InputStream stageIn = in;
+            threads.add(Thread.ofPlatform().daemon()
+                    .name("pipeline-stage-" + i)
+                    .start(() -> results[index] = runStage(stages.get(index), stageIn, out, error, !first, !last)));
+            in = next;
+        }
+        try
+        {
+            for (Thread t : threads)
+                t.join();
+        }
+        catch (InterruptedException e)
+        {
+            threads.forEach(Thread::interrupt);
+            awaitStopped(threads);
+            throw e;
+        }
+        return results[n - 1];
+    }
+
+    /**
+     * Gives interrupted stages up to {@link #STOP_TIMEOUT_MILLIS} in all to
+     * wind down, so they are not still writing when the caller carries on.
+     * A stage that ignores its interrupt is left behind as a daemon thread.
+     */
+    private static void awaitStopped(List<Thread> threads)
+    {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_TIMEOUT_MILLIS);
+        try
+        {
+            for (Thread t : threads)
+            {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !t.join(Duration.ofNanos(remaining)))
+                    return;
+            }
+        }
+        catch (InterruptedException _)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static CommandResult runStage(PipelineStage stage, InputStream in, OutputStream out, OutputStream err, boolean ownsIn, boolean ownsOut)
+    {
+        try
+        {
+            return stage.run(in, out, err);
+        }
+        catch (BoundedPipe.BrokenPipeException e)
+        {
+            return CommandResult.Success;
+        }
+        catch (IOException e)
+        {
+            ErrorPrinter.setLastError("Pipeline execution failed: " + e.getMessage());
+            return CommandResult.Failure;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            ErrorPrinter.setLastError("Pipeline interrupted");
+            return CommandResult.Failure;
+        }
+        finally
+        {
+            closeQuietly(in, ownsIn);
+            closeQuietly(out, ownsOut);
+            closeQuietly(err, false);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable stream, boolean owned)
+    {
+        try
+        {
+            if (owned)
+                stream.close();
+            else if (stream instanceof OutputStream os)
+                os.flush();
+        }
+        catch (Exception _) {}
+    }
+}
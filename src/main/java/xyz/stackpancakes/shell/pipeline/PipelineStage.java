@@ -0,0 +1,19 @@
+package xyz.stackpancakes.shell.pipeline;
+
+import xyz.stackpancakes.shell.core.CommandResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * One segment of a {@link Pipeline}.  A stage consumes its input stream and
+ * writes to its output and error streams while the neighbouring stages run
+ * at the same time; it must not close any of them, the pipeline does that
+ * once the stage returns.
+ */
+@FunctionalInterface
+public interface PipelineStage
+{
+    CommandResult run(InputStream in, OutputStream out, OutputStream err) throws IOException, InterruptedException;
+}
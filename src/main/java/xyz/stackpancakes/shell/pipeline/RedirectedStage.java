@@ -0,0 +1,50 @@
+package xyz.stackpancakes.shell.pipeline;
+
+import xyz.stackpancakes.shell.core.CommandResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Applies a segment's {@link Redirections} to an in-process stage by
+ * swapping the affected streams for file channels.  External stages apply
+ * redirections to their process instead and are never wrapped.
+ */
+public final class RedirectedStage implements PipelineStage
+{
+    private final PipelineStage stage;
+    private final Redirections redirections;
+
+    public RedirectedStage(PipelineStage stage, Redirections redirections)
+    {
+        this.stage = stage;
+        this.redirections = redirections;
+    }
+
+    @Override
+    public CommandResult run(InputStream in, OutputStream out, OutputStream err) throws IOException, InterruptedException
+    {
+        InputStream fileIn = redirections.input() != null ? redirections.openInput() : null;
+        OutputStream fileOut = null;
+        OutputStream fileErr = null;
+        try
+        {
+            fileOut = redirections.output() != null ? redirections.openOutput() : null;
+            fileErr = redirections.error() != null && !redirections.errorToOutput() ? redirections.openError() : null;
+            InputStream stageIn = fileIn != null ? fileIn : in;
+            OutputStream stageOut = fileOut != null ? fileOut : out;
+            OutputStream stageErr = redirections.errorToOutput() ? stageOut : fileErr != null ? fileErr : err;
+            return stage.run(stageIn, stageOut, stageErr);
+        }
+        finally
+        {
+            if (fileIn != null)
+                fileIn.close();
+            if (fileOut != null)
+                fileOut.close();
+            if (fileErr != null)
+                fileErr.close();
+        }
+    }
+}
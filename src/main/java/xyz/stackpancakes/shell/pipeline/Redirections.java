@@ -0,0 +1,111 @@
+package xyz.stackpancakes.shell.pipeline;
+
+import xyz.stackpancakes.shell.core.Redirection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * File redirections attached to one pipeline segment: {@code < file},
+ * {@code > file}, {@code >> file}, {@code 2> file}, {@code 2>> file} and
+ * {@code 2>&1}.  External programs get them as
+ * {@link ProcessBuilder.Redirect}s so the kernel moves the data; built‑ins
+ * get streams over a {@link FileChannel}, so a file is never held in memory
+ * as a whole.  A {@code null} path means the stream is not redirected, and
+ * {@code 2>&1} sends standard error wherever standard output ends up.
+ */
+public record Redirections(Path input, Path output, boolean appendOutput, Path error, boolean appendError, boolean errorToOutput)
+{
+    public static final Redirections NONE = new Redirections(null, null, false, null, false, false);
+
+    /**
+     * Resolves the parsed redirections of one command against {@code base}.
+     * A later redirection of the same stream replaces an earlier one.
+     */
+    public static Redirections resolve(List<Redirection> redirections, Path base)
+    {
+        if (redirections.isEmpty())
+            return NONE;
+        Path input = null;
+        Path output = null;
+        Path error = null;
+        boolean appendOutput = false;
+        boolean appendError = false;
+        boolean errorToOutput = false;
+        for (Redirection redirection : redirections)
+        {
+            Path target = redirection.target() == null ? null : base.resolve(redirection.target()).normalize();
+            switch (redirection.kind())
+            {
+                case INPUT -> input = target;
+                case OUTPUT, APPEND ->
+                {
+                    output = target;
+                    appendOutput = redirection.kind() == Redirection.Kind.APPEND;
+                }
+                case ERROR, ERROR_APPEND ->
+                {
+                    error = target;
+                    appendError = redirection.kind() == Redirection.Kind.ERROR_APPEND;
+                }
+                case ERROR_TO_OUTPUT -> errorToOutput = true;
+            }
+        }
+        return new Redirections(input, output, appendOutput, error, appendError, errorToOutput);
+    }
+
+    public boolean isEmpty()
+    {
+        return input == null && output == null && error == null && !errorToOutput;
+    }
+
+    /**
+     * Applies these redirections to a process builder.  Streams that are not
+     * redirected are left as the builder already has them.
+     */
+    public void applyTo(ProcessBuilder pb)
+    {
+        if (input != null)
+            pb.redirectInput(ProcessBuilder.Redirect.from(input.toFile()));
+        if (output != null)
+            pb.redirectOutput(redirect(output, appendOutput));
+        if (errorToOutput)
+            pb.redirectErrorStream(true);
+        else if (error != null)
+            pb.redirectError(redirect(error, appendError));
+    }
+
+    public InputStream openInput() throws IOException
+    {
+        return Channels.newInputStream(FileChannel.open(input, StandardOpenOption.READ));
+    }
+
+    public OutputStream openOutput() throws IOException
+    {
+        return open(output, appendOutput);
+    }
+
+    public OutputStream openError() throws IOException
+    {
+        return open(error, appendError);
+    }
+
+    private static ProcessBuilder.Redirect redirect(Path target, boolean append)
+    {
+        return append ? ProcessBuilder.Redirect.appendTo(target.toFile()) : ProcessBuilder.Redirect.to(target.toFile());
+    }
+
+    private static OutputStream open(Path target, boolean append) throws IOException
+    {
+        List<StandardOpenOption> options = new ArrayList<>(List.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+        options.add(append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        return Channels.newOutputStream(FileChannel.open(target, options.toArray(StandardOpenOption[]::new)));
+    }
+}
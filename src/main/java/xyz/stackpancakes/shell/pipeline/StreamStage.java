@@ -0,0 +1,62 @@
+package xyz.stackpancakes.shell.pipeline;
+
+import xyz.stackpancakes.shell.core.CommandResult;
+import xyz.stackpancakes.shell.core.StreamCommand;
+import xyz.stackpancakes.shell.util.ErrorPrinter;
+import xyz.stackpancakes.shell.util.OutputSink;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Pipeline stage running a {@link StreamCommand} directly on the stage's
+ * streams.  {@link OutputSink}, like any {@link PrintStream}, swallows
+ * write errors, so once the downstream consumer has gone away the stage
+ * input is closed as well; the command's next read then fails and the
+ * broken pipe travels upstream instead of the command producing output
+ * nobody reads.
+ */
+public final class StreamStage implements PipelineStage
+{
+    private final StreamCommand command;
+    private final List<String> args;
+
+    public StreamStage(StreamCommand command, List<String> args)
+    {
+        this.command = command;
+        this.args = List.copyOf(args);
+    }
+
+    @Override
+    public CommandResult run(InputStream in, OutputStream out, OutputStream err)
+    {
+        OutputStream guarded = new FilterOutputStream(out)
+        {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException
+            {
+                try
+                {
+                    out.write(b, off, len);
+                }
+                catch (BoundedPipe.BrokenPipeException e)
+                {
+                    in.close();
+                    throw e;
+                }
+            }
+        };
+        try (OutputSink sink = new OutputSink(guarded);
+             OutputSink errSink = new OutputSink(err))
+        {
+            CommandResult result = command.execute(args, in, sink, errSink);
+            if (result != CommandResult.Success)
+                ErrorPrinter.getLastError().ifPresent(errSink::println);
+            return result;
+        }
+    }
+}
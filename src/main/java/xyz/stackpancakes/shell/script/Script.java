@@ -0,0 +1,33 @@
+package xyz.stackpancakes.shell.script;
+
+import xyz.stackpancakes.shell.core.CommandList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A parsed script: its lines in order, with blank lines and
+ * {@code #} comments already dropped.
+ */
+public record Script(List<CommandList> lines)
+{
+    public Script(List<CommandList> lines)
+    {
+        this.lines = List.copyOf(lines);
+    }
+
+    /**
+     * Parses every line of {@code text} that is not blank or a comment with
+     * {@code parser}.
+     */
+    public static Script parse(String text, Function<String, CommandList> parser)
+    {
+        List<CommandList> lines = new ArrayList<>();
+        text.lines()
+                .map(String::strip)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .forEach(line -> lines.add(parser.apply(line)));
+        return new Script(lines);
+    }
+}
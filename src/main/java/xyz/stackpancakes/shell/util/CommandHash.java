@@ -0,0 +1,168 @@
+package xyz.stackpancakes.shell.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Remembers where each external command was found on {@code PATH}, like the
+ * {@code hash} built‑in of POSIX shells, so that a repeated command costs a
+ * map lookup instead of probing every {@code PATH} directory.  An entry is
+ * dropped when {@link PathWatcher} reports a change in its directory or in
+ * any directory searched before it, since a new file there could shadow
+ * the cached one.  Directories that cannot be watched are validated by
+ * their modification time instead.  A daemon client whose {@code PATH}
+ * differs from the daemon's is served by a fresh search of the client's
+ * directories, which bypasses the table.
+ */
+public final class CommandHash
+{
+    private static final boolean isWindows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("win");
+    private static final List<String> windowsExtensions = List.of(".exe", ".com", ".bat", ".cmd");
+    private static final Pattern hasExtension = Pattern.compile(".*\\.[a-zA-Z0-9]+$");
+    private static final Map<String, Entry> table = new ConcurrentHashMap<>();
+    private static boolean listening;
+
+    private CommandHash() {}
+
+    public record Snapshot(String command, Path path, long hits) {}
+
+    private record Entry(Path path, int directoryIndex, List<FileTime> searchedModified, AtomicLong hits) {}
+
+    public static Optional<Path> lookup(String command)
+    {
+        if (command == null || command.isEmpty())
+            return Optional.empty();
+        if (RemoteSession.active())
+        {
+            String clientPath = RemoteSession.getenv("PATH");
+            if (!PathWatcher.isOwnPath(clientPath))
+                return Optional.ofNullable(search(command, PathWatcher.parse(clientPath))).map(Entry::path);
+        }
+        ensureListening();
+        String key = key(command);
+        Entry entry = table.get(key);
+        if (entry != null)
+        {
+            if (isCurrent(entry))
+            {
+                entry.hits().incrementAndGet();
+                return Optional.of(entry.path());
+            }
+            table.remove(key, entry);
+        }
+        Entry found = search(command, PathWatcher.directories());
+        if (found == null)
+            return Optional.empty();
+        table.put(key, found);
+        return Optional.of(found.path());
+    }
+
+    public static void clear()
+    {
+        table.clear();
+    }
+
+    public static boolean forget(String command)
+    {
+        return table.remove(key(command)) != null;
+    }
+
+    public static List<Snapshot> entries()
+    {
+        List<Snapshot> list = new ArrayList<>(table.size());
+        table.forEach((command, entry) -> list.add(new Snapshot(command, entry.path(), entry.hits().get())));
+        list.sort(Comparator.comparing(Snapshot::command));
+        return list;
+    }
+
+    private static synchronized void ensureListening()
+    {
+        if (listening)
+            return;
+        listening = true;
+        PathWatcher.addListener(CommandHash::directoryChanged);
+    }
+
+    private static void directoryChanged(Path dir)
+    {
+        int index = PathWatcher.directories().indexOf(dir);
+        if (index < 0)
+            return;
+        table.values().removeIf(entry -> entry.directoryIndex() >= index);
+    }
+
+    private static String key(String command)
+    {
+        return isWindows ? command.toLowerCase(Locale.ROOT) : command;
+    }
+
+    private static boolean isCurrent(Entry entry)
+    {
+        List<Path> dirs = PathWatcher.directories();
+        for (int i = 0; i <= entry.directoryIndex(); i++)
+        {
+            Path dir = dirs.get(i);
+            if (PathWatcher.isWatching(dir))
+                continue;
+            if (!modifiedTime(dir).equals(entry.searchedModified().get(i)))
+                return false;
+        }
+        return true;
+    }
+
+    private static Entry search(String command, List<Path> dirs)
+    {
+        List<FileTime> searched = new ArrayList<>();
+        boolean tryExtensions = isWindows && !hasExtension.matcher(command).matches();
+        for (int i = 0; i < dirs.size(); i++)
+        {
+            Path dir = dirs.get(i);
+            searched.add(modifiedTime(dir));
+            Path match = probe(dir, command);
+            if (match == null && tryExtensions)
+                for (String ext : windowsExtensions)
+                    if ((match = probe(dir, command + ext)) != null)
+                        break;
+            if (match != null)
+                return new Entry(match, i, List.copyOf(searched), new AtomicLong());
+        }
+        return null;
+    }
+
+    private static Path probe(Path dir, String name)
+    {
+        try
+        {
+            Path candidate = dir.resolve(name);
+            return FileSystemUtils.canExecuteNow(candidate) ? candidate : null;
+        }
+        catch (InvalidPathException _)
+        {
+            return null;
+        }
+    }
+
+    private static FileTime modifiedTime(Path dir)
+    {
+        try
+        {
+            return Files.getLastModifiedTime(dir);
+        }
+        catch (IOException _)
+        {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
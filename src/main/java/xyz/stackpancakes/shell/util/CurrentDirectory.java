@@ -7,18 +7,48 @@ import java.nio.file.Paths;
  * Global holder for the current working directory.  Because Java does not
  * expose an API to change the process working directory, this class keeps
  * track of it and updates the {@code user.dir} system property for external
- * commands that rely on it.
+ * commands that rely on it.  A background job works on its own copy, set up
+ * by {@link #isolate}, so its {@code CD} does not move the shell.
  */
 public class CurrentDirectory
 {
-    private static Path currentDirectory = Paths.get(System.getProperty("user.dir"));
+    private static volatile Path currentDirectory = Paths.get(System.getProperty("user.dir"));
+    private static final InheritableThreadLocal<Path> ownDirectory = new InheritableThreadLocal<>();
+
     public static Path get()
     {
-        return currentDirectory;
+        Path own = ownDirectory.get();
+        return own != null ? own : currentDirectory;
+    }
+    /**
+     * Resolves a path typed by the user: {@code ~} and {@code ~/...} are
+     * taken from the home directory, anything else from the current
+     * directory.  The result is normalised but not required to exist.
+     */
+    public static Path resolve(String path)
+    {
+        if (path.equals("~"))
+            return Paths.get(FileSystemUtils.getHomeDirectory());
+        if (path.startsWith("~/"))
+            return Paths.get(FileSystemUtils.getHomeDirectory()).resolve(path.substring(2)).normalize();
+        return get().resolve(path).normalize();
     }
     public static void set(Path path)
     {
+        if (ownDirectory.get() != null)
+        {
+            ownDirectory.set(path);
+            return;
+        }
         currentDirectory = path;
         System.setProperty("user.dir", path.toString());
     }
-}
\ No newline at end of file
+    /**
+     * Gives the calling thread, and the threads it starts from now on, a
+     * current directory of their own, starting at {@code path}.
+     */
+    public static void isolate(Path path)
+    {
+        ownDirectory.set(path);
+    }
+}
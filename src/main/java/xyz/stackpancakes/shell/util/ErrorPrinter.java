@@ -1,40 +1,52 @@
 package xyz.stackpancakes.shell.util;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static xyz.stackpancakes.shell.util.PrinterUtils.printFormatted;
 
+/**
+ * Remembers the last error a command reported, for the REPL to print.  A
+ * background job keeps its own, set up by {@link #isolate}, so it cannot
+ * overwrite the error of the command running in the foreground.
+ */
 public final class ErrorPrinter
 {
-    private static final Object lock = new Object();
-    private static String lastError;
+    private static final AtomicReference<String> lastError = new AtomicReference<>();
+    private static final InheritableThreadLocal<AtomicReference<String>> ownError = new InheritableThreadLocal<>();
 
     public static void setLastError(String msg)
     {
-        synchronized (lock)
-        {
-            lastError = msg;
-        }
+        holder().set(msg);
     }
 
     public static Optional<String> getLastError()
     {
-        synchronized (lock)
-        {
-            return Optional.ofNullable(lastError);
-        }
+        return Optional.ofNullable(holder().get());
     }
 
     public static void clearLastError()
     {
-        synchronized (lock)
-        {
-            lastError = null;
-        }
+        holder().set(null);
+    }
+
+    /**
+     * Gives the calling thread, and the threads it starts from now on, a
+     * last error of their own, shared among them.
+     */
+    public static void isolate()
+    {
+        ownError.set(new AtomicReference<>());
     }
 
     public static void print(String message)
     {
         printFormatted(message, System.err);
     }
-}
\ No newline at end of file
+
+    private static AtomicReference<String> holder()
+    {
+        AtomicReference<String> own = ownError.get();
+        return own != null ? own : lastError;
+    }
+}
@@ -0,0 +1,163 @@
+package xyz.stackpancakes.shell.util;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived cache of file attributes shared by completion, {@code DIR}
+ * colouring and executability checks.  Each miss reads the attributes with
+ * a single {@code readAttributes} call (POSIX attributes where available,
+ * basic ones elsewhere) instead of separate {@code exists},
+ * {@code isDirectory}, {@code isSymbolicLink} and {@code isExecutable}
+ * probes.  Entries expire after {@link #TTL_MILLIS}, and the REPL clears the
+ * cache after every command, so changes on disk show up on the next
+ * listing.  Checks made right before running a file use {@link #reload}.
+ */
+public final class FileAttributeCache
+{
+    public static final long TTL_MILLIS = 2_000;
+    private static final long ttlNanos = TimeUnit.MILLISECONDS.toNanos(TTL_MILLIS);
+    private static final int maxEntries = 65_536;
+    private static final boolean isWindows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("win");
+    private static final boolean isPosix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    private static final Map<Path, Entry> cache = new ConcurrentHashMap<>();
+
+    private FileAttributeCache() {}
+
+    /**
+     * Snapshot of one path.  Type flags follow symbolic links, except
+     * {@code symbolicLink} itself; a dangling link does not exist.
+     */
+    public record FileAttributes(boolean exists,
+                                 boolean directory,
+                                 boolean regularFile,
+                                 boolean symbolicLink,
+                                 boolean executable,
+                                 long size,
+                                 FileTime lastModified,
+                                 Set<PosixFilePermission> permissions)
+    {
+        static final FileAttributes MISSING = new FileAttributes(false, false, false, false, false, 0, FileTime.fromMillis(0), null);
+    }
+
+    private record Entry(FileAttributes attributes, long readAt) {}
+
+    public static FileAttributes get(Path path)
+    {
+        long now = System.nanoTime();
+        Entry entry = cache.get(path);
+        if (entry != null && now - entry.readAt() < ttlNanos)
+            return entry.attributes();
+        return store(path, now);
+    }
+
+    /**
+     * Reads the attributes of {@code path} from disk whatever is cached and
+     * remembers the result.
+     */
+    public static FileAttributes reload(Path path)
+    {
+        return store(path, System.nanoTime());
+    }
+
+    private static FileAttributes store(Path path, long now)
+    {
+        FileAttributes attributes = read(path);
+        if (cache.size() >= maxEntries)
+            prune(now);
+        cache.put(path, new Entry(attributes, now));
+        return attributes;
+    }
+
+    public static void invalidate(Path path)
+    {
+        cache.remove(path);
+    }
+
+    public static void clear()
+    {
+        cache.clear();
+    }
+
+    private static void prune(long now)
+    {
+        cache.values().removeIf(e -> now - e.readAt() >= ttlNanos);
+        if (cache.size() >= maxEntries)
+            cache.clear();
+    }
+
+    private static FileAttributes read(Path path)
+    {
+        try
+        {
+            BasicFileAttributes link = readAttributes(path, LinkOption.NOFOLLOW_LINKS);
+            BasicFileAttributes target = link;
+            if (link.isSymbolicLink())
+            {
+                try
+                {
+                    target = readAttributes(path);
+                }
+                catch (IOException _)
+                {
+                    return FileAttributes.MISSING;
+                }
+            }
+            Set<PosixFilePermission> permissions = target instanceof PosixFileAttributes posix ? posix.permissions() : null;
+            return new FileAttributes(true,
+                    target.isDirectory(),
+                    target.isRegularFile(),
+                    link.isSymbolicLink(),
+                    isExecutable(path, permissions),
+                    target.size(),
+                    target.lastModifiedTime(),
+                    permissions);
+        }
+        catch (IOException | UnsupportedOperationException | SecurityException _)
+        {
+            return FileAttributes.MISSING;
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(Path path, LinkOption... options) throws IOException
+    {
+        if (isPosix)
+            return Files.readAttributes(path, PosixFileAttributes.class, options);
+        return Files.readAttributes(path, BasicFileAttributes.class, options);
+    }
+
+    /**
+     * Windows decides by extension.  Elsewhere a file without any execute
+     * bit is rejected from the attributes already read; only candidates with
+     * one still need the access check for the current user.
+     */
+    private static boolean isExecutable(Path path, Set<PosixFilePermission> permissions)
+    {
+        if (isWindows)
+        {
+            Path name = path.getFileName();
+            if (name == null)
+                return false;
+            String fileName = name.toString().toLowerCase(Locale.ROOT);
+            return fileName.endsWith(".exe") || fileName.endsWith(".bat") || fileName.endsWith(".com") || fileName.endsWith(".cmd");
+        }
+        if (permissions != null
+                && !permissions.contains(PosixFilePermission.OWNER_EXECUTE)
+                && !permissions.contains(PosixFilePermission.GROUP_EXECUTE)
+                && !permissions.contains(PosixFilePermission.OTHERS_EXECUTE))
+            return false;
+        return Files.isExecutable(path);
+    }
+}
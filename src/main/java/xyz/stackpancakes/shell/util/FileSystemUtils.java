@@ -1,51 +1,101 @@
 package xyz.stackpancakes.shell.util;
 
+import xyz.stackpancakes.shell.job.JobTable;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Writer;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.nio.file.FileSystemException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Locale;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class FileSystemUtils
 {
+    public static final int MAX_REPORTED_FAILURES = 20;
     private static final AtomicReference<Process> currentProcess = new AtomicReference<>();
+    private static final AtomicReference<Thread> interruptibleThread = new AtomicReference<>();
 
     public static String getHomeDirectory()
     {
         return System.getProperty("user.home");
     }
 
-    public static boolean isExecutable(Path entry)
+    /**
+     * File system exceptions often carry only the path as their message, so
+     * the reason or, failing that, the exception type is reported instead.
+     */
+    public static String describeFailure(Path path, IOException e)
     {
-        if (entry == null || !Files.exists(entry))
-            return false;
+        String reason = e.getMessage();
+        if (e instanceof FileSystemException fse)
+            reason = fse.getReason() != null ? fse.getReason() : e.getClass().getSimpleName();
+        return path + ": " + reason;
+    }
 
-        try
+    /**
+     * Formats the failures collected by a bulk operation, listing the first
+     * {@value #MAX_REPORTED_FAILURES} of them.
+     */
+    public static String summariseFailures(Collection<String> failures, String action)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(failures.size()).append(failures.size() == 1 ? " entry" : " entries").append(" could not be ").append(action).append(':');
+        int shown = 0;
+        for (String failure : failures)
         {
-            String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
-            boolean isWindows = os.contains("win");
-            if (isWindows)
+            if (shown++ == MAX_REPORTED_FAILURES)
             {
-                String fileName = entry.getFileName().toString().toLowerCase(Locale.ROOT);
-                return fileName.endsWith(".exe") || fileName.endsWith(".bat") || fileName.endsWith(".com") || fileName.endsWith(".cmd");
+                sb.append(System.lineSeparator()).append("  ... and ").append(failures.size() - MAX_REPORTED_FAILURES).append(" more");
+                break;
             }
-            else
-                return Files.isExecutable(entry);
+            sb.append(System.lineSeparator()).append("  ").append(failure);
         }
-        catch (Exception _)
-        {
+        return sb.toString();
+    }
+
+    public static boolean isExecutable(Path entry)
+    {
+        if (entry == null)
             return false;
-        }
+        FileAttributeCache.FileAttributes attributes = FileAttributeCache.get(entry);
+        return attributes.exists() && attributes.executable();
+    }
+
+    /**
+     * Like {@link #isExecutable} but always asks the file system, for the
+     * check made right before running {@code entry}: a file that was just
+     * created or given its execute bit must not be refused from the cache.
+     */
+    public static boolean canExecuteNow(Path entry)
+    {
+        if (entry == null)
+            return false;
+        FileAttributeCache.FileAttributes attributes = FileAttributeCache.reload(entry);
+        return attributes.exists() && attributes.executable();
+    }
+
+    /**
+     * Marks a builtin thread that waits indefinitely, such as
+     * {@code TAIL --follow}, as the one Ctrl+C should interrupt.  Pass
+     * {@code null} once it has finished waiting.
+     */
+    public static void setInterruptibleThread(Thread thread)
+    {
+        if (JobTable.inJob())
+            return;
+        interruptibleThread.set(thread);
     }
 
     public static void interruptCurrentProcess()
     {
+        Thread thread = interruptibleThread.get();
+        if (thread != null)
+            thread.interrupt();
         Process process = currentProcess.get();
         if (process != null && process.isAlive())
         {
@@ -63,8 +113,10 @@ public class FileSystemUtils
 
         ProcessBuilder builder = new ProcessBuilder(command);
         builder.directory(CurrentDirectory.get().toFile());
-        builder.redirectInput(ProcessBuilder.Redirect.INHERIT);
+        boolean detached = RemoteSession.active() || JobTable.inJob();
+        builder.redirectInput(detached ? ProcessBuilder.Redirect.PIPE : ProcessBuilder.Redirect.INHERIT);
 
+        RemoteSession.applyTo(builder);
         builder.environment().putIfAbsent("TERM", "xterm-256color");
         builder.environment().put("CLICOLOR_FORCE", "1");
         builder.environment().put("FORCE_COLOR", "1");
@@ -78,9 +130,12 @@ public class FileSystemUtils
         try
         {
             process = builder.start();
-            currentProcess.set(process);
+            if (!JobTable.track(process))
+                currentProcess.set(process);
+            if (detached)
+                process.getOutputStream().close();
 
-            Writer terminalWriter = TerminalShare.getSharedTerminal().writer();
+            Writer terminalWriter = TerminalShare.writer();
 
             Thread outThread = getOutThread(process, stdoutCapture, cs, terminalWriter);
             Thread errThread = getErrThread(process, stderrCapture, cs, terminalWriter);
@@ -97,7 +152,6 @@ public class FileSystemUtils
             String stderr = stderrCapture.toString(cs);
             String captured = stdout + stderr;
 
-            OutputPrinter.setLastOutput(captured);
             if (exitCode != 0)
             {
                 if (!stderr.isEmpty())
@@ -108,6 +162,9 @@ public class FileSystemUtils
             else
                 ErrorPrinter.setLastError("");
 
+            // A background job is reported by its completion notice instead.
+            if (JobTable.inJob())
+                return exitCode == 0;
             return returnCode(exitCode, getConsoleWidth());
         }
         catch (IOException | InterruptedException e)
@@ -117,7 +174,7 @@ public class FileSystemUtils
         }
         finally
         {
-            currentProcess.set(null);
+            currentProcess.compareAndSet(process, null);
             if (process != null && process.isAlive())
                 process.destroy();
         }
@@ -181,18 +238,6 @@ public class FileSystemUtils
 
     private static int getConsoleWidth()
     {
-        int width = 80;
-
-        try
-        {
-            int w = TerminalShare.getSharedTerminal().getWidth();
-            if (w > 0)
-                width = w;
-        }
-        catch (Exception _)
-        {
-        }
-
-        return width;
+        return TerminalShare.width();
     }
 }
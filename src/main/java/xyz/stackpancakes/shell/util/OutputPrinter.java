@@ -2,6 +2,12 @@ package xyz.stackpancakes.shell.util;
 
 import java.util.Optional;
 
+/**
+ * Compatibility shim for built‑ins that still hand back their output as a
+ * single string.  New code writes to the {@link OutputSink} it is given
+ * instead; the shell drains whatever is left here into that sink after a
+ * legacy command returns.
+ */
 public final class OutputPrinter
 {
     private static final Object lock = new Object();
@@ -35,4 +41,4 @@ public final class OutputPrinter
     {
         return lastOutput;
     }
-}
\ No newline at end of file
+}
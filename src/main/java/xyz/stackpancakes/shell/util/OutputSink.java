@@ -0,0 +1,47 @@
+package xyz.stackpancakes.shell.util;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Per-invocation output stream handed to built‑ins.  Output is gathered in
+ * a fixed-size chunk that is written through to the target whenever it
+ * fills, so a long listing reaches the terminal while the command is still
+ * running and is never held in memory as a whole.  Closing the sink flushes
+ * the last chunk but leaves the target open.
+ */
+public final class OutputSink extends PrintStream
+{
+    public static final int CHUNK_SIZE = 8192;
+
+    public OutputSink(OutputStream target)
+    {
+        super(new BufferedOutputStream(new Unclosable(target), CHUNK_SIZE), false);
+    }
+
+    public static OutputSink toTerminal()
+    {
+        return new OutputSink(System.out);
+    }
+
+    private static final class Unclosable extends FilterOutputStream
+    {
+        Unclosable(OutputStream out)
+        {
+            super(out);
+        }
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+        }
+        @Override
+        public void close() throws IOException
+        {
+            out.flush();
+        }
+    }
+}
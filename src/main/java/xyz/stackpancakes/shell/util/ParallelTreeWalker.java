@@ -0,0 +1,226 @@
+package xyz.stackpancakes.shell.util;
+
+import xyz.stackpancakes.shell.job.JobTable;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Walks a directory tree on a work-stealing pool.  Every directory is listed
+ * by its own task and its other entries are handed to the visitor in
+ * batches of {@link #ENTRIES_PER_TASK}, so both deep trees and single huge
+ * directories keep all workers busy.  A root that is a symbolic link is
+ * followed, as {@code find -H} does for the paths named on its command line;
+ * links below the root are reported but never followed.  The order in which entries are visited is not defined, and the
+ * visitor is called from several threads at once.
+ */
+public final class ParallelTreeWalker
+{
+    public static final int ENTRIES_PER_TASK = 64;
+
+    /**
+     * An entry of the tree; {@code depth} is 0 for the root.
+     */
+    public record Entry(Path path, BasicFileAttributes attributes, int depth) {}
+
+    public interface Visitor
+    {
+        void visit(Entry entry);
+
+        /**
+         * Whether the walk should list the entries of {@code directory},
+         * which has already been visited.
+         */
+        default boolean descend(Entry directory)
+        {
+            return true;
+        }
+
+        default void failed(Path path, IOException e) {}
+
+        /**
+         * Polled between entries; once it returns {@code true} no further
+         * entries are visited.
+         */
+        default boolean stopped()
+        {
+            return false;
+        }
+    }
+
+    private ParallelTreeWalker() {}
+
+    /**
+     * Visits {@code root} and everything below it down to {@code maxDepth}
+     * levels, using {@code jobs} worker threads, and returns once the walk is
+     * complete.
+     */
+    public static void walk(Path root, int maxDepth, int jobs, Visitor visitor)
+    {
+        Entry entry;
+        try
+        {
+            entry = new Entry(root, rootAttributes(root), 0);
+        }
+        catch (IOException e)
+        {
+            visitor.failed(root, e);
+            return;
+        }
+        visitor.visit(entry);
+        if (!entry.attributes().isDirectory() || maxDepth < 1 || !visitor.descend(entry))
+            return;
+        try (ForkJoinPool pool = new ForkJoinPool(jobs))
+        {
+            pool.invoke(new DirectoryTask(entry, maxDepth, new Cancellable(visitor, JobTable.cancellation())));
+        }
+    }
+
+    /**
+     * Passes everything on to the caller's visitor but also stops the walk
+     * once the job that started it is killed.
+     */
+    private record Cancellable(Visitor visitor, BooleanSupplier cancelled) implements Visitor
+    {
+        @Override
+        public void visit(Entry entry)
+        {
+            visitor.visit(entry);
+        }
+
+        @Override
+        public boolean descend(Entry directory)
+        {
+            return visitor.descend(directory);
+        }
+
+        @Override
+        public void failed(Path path, IOException e)
+        {
+            visitor.failed(path, e);
+        }
+
+        @Override
+        public boolean stopped()
+        {
+            return cancelled.getAsBoolean() || visitor.stopped();
+        }
+    }
+
+    /**
+     * The attributes of the file the root leads to, or of the link itself
+     * if it dangles.
+     */
+    private static BasicFileAttributes rootAttributes(Path root) throws IOException
+    {
+        try
+        {
+            return Files.readAttributes(root, BasicFileAttributes.class);
+        }
+        catch (NoSuchFileException e)
+        {
+            if (!Files.isSymbolicLink(root))
+                throw e;
+            return Files.readAttributes(root, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        }
+    }
+
+    private static final class DirectoryTask extends RecursiveAction
+    {
+        private final Entry directory;
+        private final int maxDepth;
+        private final Visitor visitor;
+
+        DirectoryTask(Entry directory, int maxDepth, Visitor visitor)
+        {
+            this.directory = directory;
+            this.maxDepth = maxDepth;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected void compute()
+        {
+            int depth = directory.depth() + 1;
+            List<RecursiveAction> subtasks = new ArrayList<>();
+            List<Path> batch = new ArrayList<>(ENTRIES_PER_TASK);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory.path()))
+            {
+                for (Path entry : entries)
+                {
+                    if (visitor.stopped())
+                        break;
+                    batch.add(entry);
+                    if (batch.size() == ENTRIES_PER_TASK)
+                    {
+                        subtasks.add(new EntriesTask(List.copyOf(batch), depth, maxDepth, visitor));
+                        batch.clear();
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                visitor.failed(directory.path(), e);
+            }
+            catch (DirectoryIteratorException e)
+            {
+                visitor.failed(directory.path(), e.getCause());
+            }
+            if (!batch.isEmpty())
+                subtasks.add(new EntriesTask(List.copyOf(batch), depth, maxDepth, visitor));
+            invokeAll(subtasks);
+        }
+    }
+
+    private static final class EntriesTask extends RecursiveAction
+    {
+        private final List<Path> paths;
+        private final int depth;
+        private final int maxDepth;
+        private final Visitor visitor;
+
+        EntriesTask(List<Path> paths, int depth, int maxDepth, Visitor visitor)
+        {
+            this.paths = paths;
+            this.depth = depth;
+            this.maxDepth = maxDepth;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected void compute()
+        {
+            List<RecursiveAction> subtasks = new ArrayList<>();
+            for (Path path : paths)
+            {
+                if (visitor.stopped())
+                    break;
+                Entry entry;
+                try
+                {
+                    entry = new Entry(path, Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS), depth);
+                }
+                catch (IOException e)
+                {
+                    visitor.failed(path, e);
+                    continue;
+                }
+                visitor.visit(entry);
+                if (entry.attributes().isDirectory() && depth < maxDepth && visitor.descend(entry))
+                    subtasks.add(new DirectoryTask(entry, maxDepth, visitor));
+            }
+            invokeAll(subtasks);
+        }
+    }
+}
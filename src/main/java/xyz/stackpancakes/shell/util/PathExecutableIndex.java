@@ -0,0 +1,158 @@
+package xyz.stackpancakes.shell.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory index of the executable names found on {@code PATH}, used for
+ * completion.  The index is built on a background thread at startup and is
+ * kept current by rescanning only the directory {@link PathWatcher} reports
+ * as changed, so a TAB press is a binary search over a sorted array rather
+ * than a listing of every {@code PATH} directory.  Directories that cannot
+ * be watched are checked at most once per {@link #REFRESH_INTERVAL_MILLIS}
+ * and rescanned in the background when their modification time moves, one
+ * scan per directory at a time so an older listing never replaces a newer
+ * one.
+ */
+public final class PathExecutableIndex
+{
+    public static final long REFRESH_INTERVAL_MILLIS = 1_000;
+    private static final long refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(REFRESH_INTERVAL_MILLIS);
+    private static final Map<Path, DirectoryEntries> byDirectory = new ConcurrentHashMap<>();
+    private static final Set<Path> refreshing = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong lastRefresh = new AtomicLong(System.nanoTime() - refreshIntervalNanos);
+    private static volatile String[] names = new String[0];
+    private static CompletableFuture<Void> initialBuild;
+
+    private PathExecutableIndex() {}
+
+    private record DirectoryEntries(FileTime modified, String[] names) {}
+
+    /**
+     * Starts building the index in the background.  Calling it again has no
+     * effect.
+     */
+    public static synchronized void startBuilding()
+    {
+        if (initialBuild != null)
+            return;
+        initialBuild = CompletableFuture.runAsync(() ->
+        {
+            for (Path dir : PathWatcher.directories())
+                scan(dir);
+            rebuild();
+            PathWatcher.addListener(PathExecutableIndex::directoryChanged);
+        }, command -> Thread.ofVirtual().name("path-index").start(command));
+    }
+
+    /**
+     * Returns the executable names starting with {@code prefix}, in sorted
+     * order.  The first call waits for the initial build if it is still
+     * running.
+     */
+    public static List<String> withPrefix(String prefix)
+    {
+        startBuilding();
+        initialBuild.join();
+        refreshUnwatched();
+        String[] snapshot = names;
+        int from = Arrays.binarySearch(snapshot, prefix);
+        if (from < 0)
+            from = -from - 1;
+        int to = from;
+        while (to < snapshot.length && snapshot[to].startsWith(prefix))
+            to++;
+        return List.of(Arrays.copyOfRange(snapshot, from, to));
+    }
+
+    private static void directoryChanged(Path dir)
+    {
+        scan(dir);
+        rebuild();
+    }
+
+    private static void refreshUnwatched()
+    {
+        long now = System.nanoTime();
+        long last = lastRefresh.get();
+        if (now - last < refreshIntervalNanos || !lastRefresh.compareAndSet(last, now))
+            return;
+        for (Path dir : PathWatcher.directories())
+        {
+            if (PathWatcher.isWatching(dir) || refreshing.contains(dir))
+                continue;
+            DirectoryEntries entries = byDirectory.get(dir);
+            FileTime modified = modifiedTime(dir);
+            if ((entries == null ? modified != null : !entries.modified().equals(modified)) && refreshing.add(dir))
+                Thread.ofVirtual().name("path-index-refresh").start(() ->
+                {
+                    try
+                    {
+                        directoryChanged(dir);
+                    }
+                    finally
+                    {
+                        refreshing.remove(dir);
+                    }
+                });
+        }
+    }
+
+    private static void scan(Path dir)
+    {
+        FileTime modified = modifiedTime(dir);
+        if (modified == null)
+        {
+            byDirectory.remove(dir);
+            return;
+        }
+        TreeSet<String> found = new TreeSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir))
+        {
+            for (Path p : stream)
+                if (Files.isRegularFile(p) && FileSystemUtils.isExecutable(p))
+                    found.add(p.getFileName().toString());
+        }
+        catch (IOException _)
+        {
+            return;
+        }
+        byDirectory.put(dir, new DirectoryEntries(modified, found.toArray(String[]::new)));
+    }
+
+    /**
+     * Publishes the merged names under the class lock, so each rebuild sees
+     * every scan finished before it and the last one to run wins.
+     */
+    private static synchronized void rebuild()
+    {
+        TreeSet<String> merged = new TreeSet<>();
+        for (DirectoryEntries entries : byDirectory.values())
+            merged.addAll(Arrays.asList(entries.names()));
+        names = merged.toArray(String[]::new);
+    }
+
+    private static FileTime modifiedTime(Path dir)
+    {
+        try
+        {
+            return Files.isDirectory(dir) ? Files.getLastModifiedTime(dir) : null;
+        }
+        catch (IOException _)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package xyz.stackpancakes.shell.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The directories listed in {@code PATH}, plus a background
+ * {@link WatchService} reporting when one of them changes.  Caches built
+ * from the contents of {@code PATH} register a listener here instead of
+ * re-scanning the directories for every command.  The watcher is started by
+ * the first listener; when the platform cannot watch a directory
+ * {@link #isWatching(Path)} returns {@code false} and callers fall back to
+ * comparing modification times.  Directories on network file systems are
+ * never watched: registering them succeeds on Linux, but changes made on
+ * other hosts are never reported.
+ */
+public final class PathWatcher
+{
+    private static final String pathVariable = System.getenv("PATH");
+    private static final List<Path> directories = parse(pathVariable);
+    private static final List<Consumer<Path>> listeners = new CopyOnWriteArrayList<>();
+    private static final Map<WatchKey, Path> watched = new HashMap<>();
+    private static final Set<String> remoteFileStores = Set.of("nfs", "nfs4", "cifs", "smb3", "smbfs", "afs", "9p", "ceph", "glusterfs", "lustre");
+    private static boolean started;
+
+    private PathWatcher() {}
+
+    /**
+     * Splits a {@code PATH} value into its directories, skipping empty and
+     * malformed entries.
+     */
+    public static List<Path> parse(String pathEnv)
+    {
+        if (pathEnv == null || pathEnv.isEmpty())
+            return List.of();
+        List<Path> dirs = new ArrayList<>();
+        for (String dir : pathEnv.split(File.pathSeparator))
+        {
+            if (dir.isEmpty())
+                continue;
+            try
+            {
+                dirs.add(Paths.get(dir));
+            }
+            catch (Exception _) {}
+        }
+        return Collections.unmodifiableList(dirs);
+    }
+
+    public static List<Path> directories()
+    {
+        return directories;
+    }
+
+    /**
+     * Whether {@code pathEnv} is the {@code PATH} this process started
+     * with, the one whose directories are watched.
+     */
+    public static boolean isOwnPath(String pathEnv)
+    {
+        return Objects.equals(pathVariable, pathEnv);
+    }
+
+    /**
+     * Registers a callback invoked with the changed directory whenever an
+     * entry in a {@code PATH} directory is created, deleted or modified.
+     */
+    public static void addListener(Consumer<Path> listener)
+    {
+        listeners.add(listener);
+        start();
+    }
+
+    public static boolean isWatching(Path directory)
+    {
+        synchronized (watched)
+        {
+            return watched.containsValue(directory);
+        }
+    }
+
+    private static synchronized void start()
+    {
+        if (started)
+            return;
+        started = true;
+        WatchService service;
+        try
+        {
+            service = FileSystems.getDefault().newWatchService();
+        }
+        catch (IOException | UnsupportedOperationException _)
+        {
+            return;
+        }
+        synchronized (watched)
+        {
+            for (Path dir : directories)
+            {
+                if (!Files.isDirectory(dir) || isRemote(dir))
+                    continue;
+                try
+                {
+                    WatchKey key = dir.register(service,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
+                    watched.put(key, dir);
+                }
+                catch (IOException | UnsupportedOperationException _) {}
+            }
+        }
+        Thread.ofVirtual().name("path-watcher").start(() -> watchLoop(service));
+    }
+
+    private static boolean isRemote(Path dir)
+    {
+        try
+        {
+            String type = Files.getFileStore(dir).type().toLowerCase(Locale.ROOT);
+            return remoteFileStores.contains(type) || type.startsWith("fuse.");
+        }
+        catch (IOException _)
+        {
+            return true;
+        }
+    }
+
+    private static void watchLoop(WatchService service)
+    {
+        while (true)
+        {
+            WatchKey key;
+            try
+            {
+                key = service.take();
+            }
+            catch (InterruptedException | ClosedWatchServiceException _)
+            {
+                return;
+            }
+            key.pollEvents();
+            Path dir;
+            synchronized (watched)
+            {
+                dir = watched.get(key);
+                if (!key.reset())
+                    watched.remove(key);
+            }
+            if (dir != null)
+                for (Consumer<Path> listener : listeners)
+                    listener.accept(dir);
+        }
+    }
+}
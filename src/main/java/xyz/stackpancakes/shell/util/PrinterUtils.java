@@ -46,13 +46,6 @@ public class PrinterUtils
     }
     private static int getConsoleWidth()
     {
-        int width = 0;
-        try
-        {
-            width = TerminalShare.getSharedTerminal().getWidth();
-            return width > 0 ? width : 80;
-        }
-        catch (Exception _) {}
-        return width;
+        return TerminalShare.width();
     }
 }
@@ -0,0 +1,136 @@
+package xyz.stackpancakes.shell.util;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live progress readout for long-running built‑ins.  Workers report
+ * finished entries and bytes from any thread; once the operation has run
+ * for longer than {@link #DELAY_MILLIS} a single status line with counts
+ * and throughput is redrawn in place on the given stream, so quick
+ * operations stay silent.  Closing the meter stops the readout and leaves
+ * the final figures on screen if any were shown.
+ */
+public final class ProgressMeter implements AutoCloseable
+{
+    public static final long DELAY_MILLIS = 500;
+    private static final long intervalMillis = 250;
+
+    private final String verb;
+    private final PrintStream out;
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final long startNanos = System.nanoTime();
+    private final Thread ticker;
+    private final boolean summary;
+    private volatile boolean closed;
+    private boolean shown;
+
+    public ProgressMeter(String verb, PrintStream out)
+    {
+        this(verb, out, false);
+    }
+
+    /**
+     * With {@code summary} set the final figures are printed on close even
+     * when the operation was too quick for the live readout to appear.
+     */
+    public ProgressMeter(String verb, PrintStream out, boolean summary)
+    {
+        this.verb = verb;
+        this.out = out;
+        this.summary = summary;
+        this.ticker = Thread.ofVirtual().name("progress-" + verb).start(this::tick);
+    }
+
+    public void add(long entryCount, long byteCount)
+    {
+        entries.add(entryCount);
+        bytes.add(byteCount);
+    }
+
+    public long entries()
+    {
+        return entries.sum();
+    }
+
+    public long bytes()
+    {
+        return bytes.sum();
+    }
+
+    public double elapsedSeconds()
+    {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    private void tick()
+    {
+        try
+        {
+            Thread.sleep(DELAY_MILLIS);
+            while (!closed)
+            {
+                draw();
+                Thread.sleep(intervalMillis);
+            }
+        }
+        catch (InterruptedException _) {}
+    }
+
+    private synchronized void draw()
+    {
+        if (closed && !shown)
+            return;
+        shown = true;
+        out.print("\r" + status() + "\u001B[K");
+        out.flush();
+    }
+
+    public String status()
+    {
+        double seconds = Math.max(elapsedSeconds(), 1e-3);
+        long byteCount = bytes.sum();
+        String line = String.format(Locale.ROOT, "%s %,d entries", verb, entries.sum());
+        if (byteCount > 0)
+            line += String.format(Locale.ROOT, ", %s (%s/s)", formatBytes(byteCount), formatBytes((long) (byteCount / seconds)));
+        return line + String.format(Locale.ROOT, " in %.1fs", seconds);
+    }
+
+    public static String formatBytes(long bytes)
+    {
+        String[] units = { "B", "KiB", "MiB", "GiB", "TiB" };
+        double value = bytes;
+        int unit = 0;
+        while (value >= 1024 && unit < units.length - 1)
+        {
+            value /= 1024;
+            unit++;
+        }
+        return unit == 0 ? bytes + " B" : String.format(Locale.ROOT, "%.1f %s", value, units[unit]);
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        ticker.interrupt();
+        try
+        {
+            ticker.join();
+        }
+        catch (InterruptedException _)
+        {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this)
+        {
+            if (shown || summary)
+            {
+                out.print((shown ? "\r" + status() + "\u001B[K" : status()) + System.lineSeparator());
+                out.flush();
+            }
+        }
+    }
+}
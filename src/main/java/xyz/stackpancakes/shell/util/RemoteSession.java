@@ -0,0 +1,53 @@
+package xyz.stackpancakes.shell.util;
+
+import java.util.Map;
+
+/**
+ * The environment of a command sent to the daemon by a client.  While one
+ * is active, {@code System.out} and {@code System.err} are the client's
+ * streams rather than the daemon's own descriptors, so external programs
+ * must be piped through the JVM instead of inheriting them, and they are
+ * started with the client's environment rather than the daemon's.
+ */
+public final class RemoteSession
+{
+    private static volatile Map<String, String> environment;
+
+    private RemoteSession() {}
+
+    public static boolean active()
+    {
+        return environment != null;
+    }
+
+    /**
+     * Starts a session with the client's environment; {@code null} ends it.
+     */
+    public static void set(Map<String, String> clientEnvironment)
+    {
+        environment = clientEnvironment == null ? null : Map.copyOf(clientEnvironment);
+    }
+
+    /**
+     * A variable from the client's environment during a session, otherwise
+     * from this process's.
+     */
+    public static String getenv(String name)
+    {
+        Map<String, String> env = environment;
+        return env != null ? env.get(name) : System.getenv(name);
+    }
+
+    /**
+     * Replaces the inherited environment of {@code builder} with the
+     * client's during a session; does nothing otherwise.
+     */
+    public static void applyTo(ProcessBuilder builder)
+    {
+        Map<String, String> env = environment;
+        if (env == null)
+            return;
+        builder.environment().clear();
+        builder.environment().putAll(env);
+    }
+}
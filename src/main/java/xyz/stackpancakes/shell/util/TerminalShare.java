@@ -3,14 +3,23 @@ package xyz.stackpancakes.shell.util;
 import org.jline.terminal.Terminal;
 import xyz.stackpancakes.Main;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Objects;
+
 /**
  * Provides a shared {@link Terminal} instance accessible from different
  * components.  This allows code that needs to query terminal properties to
  * obtain the same terminal instance that was created in {@link Main#main}.
+ * Non-interactive runs never create a terminal; {@link #width()},
+ * {@link #writer()} and {@link #read()} then fall back to the plain
+ * standard streams.
  */
 public final class TerminalShare
 {
     private static final Object lock = new Object();
+    private static final int DEFAULT_WIDTH = 80;
     private static Terminal sharedTerminal;
     private TerminalShare() {}
     public static void setSharedTerminal(Terminal terminal)
@@ -27,4 +36,39 @@ public final class TerminalShare
             return sharedTerminal;
         }
     }
+
+    /**
+     * The terminal width, or {@code COLUMNS} (default 80) without a
+     * terminal.
+     */
+    public static int width()
+    {
+        Terminal terminal = getSharedTerminal();
+        if (terminal != null && terminal.getWidth() > 0)
+            return terminal.getWidth();
+        try
+        {
+            return Integer.parseInt(Objects.requireNonNullElse(RemoteSession.getenv("COLUMNS"), ""));
+        }
+        catch (NumberFormatException _)
+        {
+            return DEFAULT_WIDTH;
+        }
+    }
+
+    public static Writer writer()
+    {
+        Terminal terminal = getSharedTerminal();
+        return terminal != null ? terminal.writer() : new PrintWriter(System.out);
+    }
+
+    /**
+     * Reads one character from the terminal, or one byte from standard
+     * input without a terminal.
+     */
+    public static int read() throws IOException
+    {
+        Terminal terminal = getSharedTerminal();
+        return terminal != null ? terminal.reader().read() : System.in.read();
+    }
 }
\ No newline at end of file
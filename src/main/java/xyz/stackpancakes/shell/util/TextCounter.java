@@ -0,0 +1,104 @@
+package xyz.stackpancakes.shell.util;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.function.Supplier;
+
+/**
+ * Counts lines, words and bytes over a sequence of memory segments, as
+ * {@code wc} does: a line is a {@code '\n'} byte and a word is a run of
+ * bytes other than ASCII whitespace.  State is carried between calls to
+ * {@link #update}, so input can be fed in pieces of any size.
+ * <p>
+ * This class is the scalar implementation.  {@link #create()} returns a
+ * Vector API implementation instead when the {@code jdk.incubator.vector}
+ * module has been added to the runtime ({@code --add-modules
+ * jdk.incubator.vector}); that class is only loaded in that case, so the
+ * shell runs unchanged without the module.
+ */
+public class TextCounter
+{
+    private static final String VECTOR_COUNTER = "xyz.stackpancakes.shell.util.VectorTextCounter";
+    private static final Supplier<TextCounter> factory = chooseFactory();
+
+    protected long lines;
+    protected long words;
+    protected long bytes;
+    protected boolean inWhitespace = true;
+
+    public static TextCounter create()
+    {
+        return factory.get();
+    }
+
+    private static Supplier<TextCounter> chooseFactory()
+    {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return TextCounter::new;
+        try
+        {
+            Class<? extends TextCounter> type = Class.forName(VECTOR_COUNTER).asSubclass(TextCounter.class);
+            type.getDeclaredConstructor().newInstance();
+            return () ->
+            {
+                try
+                {
+                    return type.getDeclaredConstructor().newInstance();
+                }
+                catch (ReflectiveOperationException e)
+                {
+                    return new TextCounter();
+                }
+            };
+        }
+        catch (ReflectiveOperationException | LinkageError e)
+        {
+            return TextCounter::new;
+        }
+    }
+
+    public void update(MemorySegment data)
+    {
+        countRange(data, 0, data.byteSize());
+        bytes += data.byteSize();
+    }
+
+    /**
+     * Counts lines and words in {@code [from, to)} one byte at a time,
+     * without adding to the byte count.
+     */
+    protected final void countRange(MemorySegment data, long from, long to)
+    {
+        long lineCount = 0;
+        long wordCount = 0;
+        boolean whitespace = inWhitespace;
+        for (long i = from; i < to; i++)
+        {
+            byte b = data.get(ValueLayout.JAVA_BYTE, i);
+            if (b == '\n')
+                lineCount++;
+            boolean space = b == ' ' || (b >= '\t' && b <= '\r');
+            if (whitespace && !space)
+                wordCount++;
+            whitespace = space;
+        }
+        lines += lineCount;
+        words += wordCount;
+        inWhitespace = whitespace;
+    }
+
+    public long lines()
+    {
+        return lines;
+    }
+
+    public long words()
+    {
+        return words;
+    }
+
+    public long bytes()
+    {
+        return bytes;
+    }
+}
@@ -0,0 +1,49 @@
+package xyz.stackpancakes.shell.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+/**
+ * {@link TextCounter} using the incubating Vector API.  Each step loads one
+ * vector of bytes; newlines are counted from a lane mask, and word starts
+ * are the lanes that are not whitespace while the lane before them is,
+ * found by shifting the whitespace mask as a bit set and carrying its top
+ * bit into the next step.  The remainder shorter than a vector is counted
+ * by the scalar loop.  Only loaded through {@link TextCounter#create()}.
+ */
+final class VectorTextCounter extends TextCounter
+{
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final long LANE_BITS = LANES == Long.SIZE ? -1L : (1L << LANES) - 1;
+
+    @Override
+    public void update(MemorySegment data)
+    {
+        long length = data.byteSize();
+        long bound = length - length % LANES;
+        long lineCount = 0;
+        long wordCount = 0;
+        long carry = inWhitespace ? 1 : 0;
+        for (long i = 0; i < bound; i += LANES)
+        {
+            ByteVector v = ByteVector.fromMemorySegment(SPECIES, data, i, ByteOrder.nativeOrder());
+            lineCount += v.eq((byte) '\n').trueCount();
+            VectorMask<Byte> space = v.eq((byte) ' ')
+                    .or(v.compare(VectorOperators.GE, (byte) '\t').and(v.compare(VectorOperators.LE, (byte) '\r')));
+            long whitespace = space.toLong();
+            wordCount += Long.bitCount(~whitespace & ((whitespace << 1) | carry) & LANE_BITS);
+            carry = (whitespace >>> (LANES - 1)) & 1;
+        }
+        lines += lineCount;
+        words += wordCount;
+        inWhitespace = carry == 1;
+        countRange(data, bound, length);
+        bytes += length;
+    }
+}
@@ -0,0 +1,133 @@
+import xyz.stackpancakes.shell.core.CommandLine;
+import xyz.stackpancakes.shell.core.CommandList;
+import xyz.stackpancakes.shell.core.Redirection;
+import xyz.stackpancakes.shell.core.SimpleCommand;
+import xyz.stackpancakes.shell.parse.CommandParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs representative command lines through {@link CommandParser#parse} and
+ * compares the syntax tree, written out compactly, with the expected one.
+ * Words are shown in brackets, redirections as the operator followed by the
+ * bracketed file name, and a syntax error as {@code error: <message>}.
+ * Started by {@code parser_test.sh}; exits with 1 if any case fails.
+ */
+public final class ParserTest
+{
+    private static final String[][] CASES =
+    {
+        // Words and quoting
+        { "dir", "[dir]" },
+        { "  dir   --top  5 ", "[dir] [--top] [5]" },
+        { "copy \"My Documents/report final.txt\" backup/", "[copy] [My Documents/report final.txt] [backup/]" },
+        { "find . -name '*.java'", "[find] [.] [-name] [*.java]" },
+        { "print \"it's\" 'say \"hi\"'", "[print] [it's] [say \"hi\"]" },
+        { "print don't", "[print] [don't]" },
+        { "print don't touch 'x'", "[print] [don't] [touch] [x]" },
+        { "print key='a b' it's", "[print] [key=a b] [it's]" },
+        { "print a\"b c\"d", "[print] [ab cd]" },
+        { "print \"\" ''", "[print] [] []" },
+        { "print \"a | b; c && d > e\"", "[print] [a | b; c && d > e]" },
+        { "print 'a & b'", "[print] [a & b]" },
+        { "cd C:\\Users\\me", "[cd] [C:\\Users\\me]" },
+        { "print \"unterminated | x", "[print] [unterminated | x]" },
+
+        // Pipelines and redirections
+        { "grep -i error logs/app.log | head -n 20 > errors.txt 2>&1", "[grep] [-i] [error] [logs/app.log] | [head] [-n] [20] >[errors.txt] 2>&1" },
+        { "sort < in.txt >> out.txt 2>> err.txt", "[sort] <[in.txt] >>[out.txt] 2>>[err.txt]" },
+        { "show 2>err.txt", "[show] 2>[err.txt]" },
+        { "a>b", "[a] >[b]" },
+        { "file2>x", "[file2] >[x]" },
+        { "print x > \"my file.txt\"", "[print] [x] >[my file.txt]" },
+        { "> out.txt", ">[out.txt]" },
+
+        // Lists and background steps
+        { "mkdir build && cd build || print fail; dir &", "[mkdir] [build] && [cd] [build] || [print] [fail] ; [dir] &" },
+        { "copy a b & jobs", "[copy] [a] [b] & ; [jobs]" },
+        { "dir;", "[dir]" },
+        { "", "" },
+
+        // Syntax errors
+        { "| dir", "error: Syntax error near '|'" },
+        { "dir | | wc", "error: Syntax error near '|'" },
+        { "dir ;; dir", "error: Syntax error near ';'" },
+        { "&& dir", "error: Syntax error near '&&'" },
+        { "dir |", "error: Syntax error: missing command after '|'" },
+        { "dir &&", "error: Syntax error: missing command after '&&'" },
+        { "dir ||", "error: Syntax error: missing command after '||'" },
+        { "dir >", "error: Syntax error: missing file name after '>'" },
+        { "sort < | wc", "error: Syntax error: missing file name after '<'" },
+        { "dir 2>> ;", "error: Syntax error: missing file name after '2>>'" },
+    };
+
+    private static final String[][] STEP_TEXTS =
+    {
+        { "mkdir build && cd build &", "mkdir build|cd build" },
+        { "print \"a;b\" ; show x | wc", "print \"a;b\"|show x | wc" },
+    };
+
+    public static void main(String[] args)
+    {
+        int failed = 0;
+        for (String[] c : CASES)
+            failed += check(c[0], render(CommandParser.parse(c[0])), c[1]);
+        for (String[] c : STEP_TEXTS)
+        {
+            List<String> texts = new ArrayList<>();
+            for (CommandList.Step step : CommandParser.parse(c[0]).steps())
+                texts.add(step.command().text());
+            failed += check(c[0], String.join("|", texts), c[1]);
+        }
+        int total = CASES.length + STEP_TEXTS.length;
+        System.out.println((total - failed) + "/" + total + " parser cases passed");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static int check(String input, String actual, String expected)
+    {
+        if (actual.equals(expected))
+            return 0;
+        System.out.println("FAIL: " + input);
+        System.out.println("  expected: " + expected);
+        System.out.println("  actual:   " + actual);
+        return 1;
+    }
+
+    private static String render(CommandList list)
+    {
+        if (list.syntaxError() != null)
+            return "error: " + list.syntaxError();
+        StringBuilder sb = new StringBuilder();
+        for (CommandList.Step step : list.steps())
+        {
+            if (!sb.isEmpty())
+                sb.append(switch (step.connector())
+                {
+                    case ALWAYS -> " ; ";
+                    case AND -> " && ";
+                    case OR -> " || ";
+                });
+            render(step.command(), sb);
+        }
+        return sb.toString();
+    }
+
+    private static void render(CommandLine line, StringBuilder sb)
+    {
+        List<String> commands = new ArrayList<>();
+        for (SimpleCommand command : line.commands())
+        {
+            List<String> parts = new ArrayList<>();
+            for (String word : command.words())
+                parts.add("[" + word + "]");
+            for (Redirection redirection : command.redirections())
+                parts.add(redirection.kind().operator() + (redirection.target() == null ? "" : "[" + redirection.target() + "]"));
+            commands.add(String.join(" ", parts));
+        }
+        sb.append(String.join(" | ", commands));
+        if (line.background())
+            sb.append(" &");
+    }
+}
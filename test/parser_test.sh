@@ -0,0 +1,8 @@
+#!/bin/sh
+# Checks the syntax trees CommandParser builds for representative lines,
+# including its syntax errors.  Needs compiled classes (mvn compile):
+#
+#   ./parser_test.sh
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd -P)
+exec java -cp "$ROOT/target/classes" "$ROOT/test/ParserTest.java"
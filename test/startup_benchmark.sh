@@ -0,0 +1,71 @@
+#!/bin/sh
+# Measures startup latency of the fat JAR:
+#   exit   - startup-to-exit of a one-shot -e run
+#   prompt - time to the first interactive prompt (-i with EXIT as its only input)
+#
+#   ./startup_benchmark.sh [runs] [command]
+#
+# When ../target/Jcmdshell.aot exists (mvn -Paot package) every measurement
+# is taken both cold and from the AOT cache.
+#
+# The launcher can be overridden with JCMDSHELL, e.g. to compare JVM flags:
+#   JCMDSHELL="java -Xshare:off -jar ../target/Jcmdshell-fat.jar" ./startup_benchmark.sh 20
+
+RUNS=${1:-10}
+COMMAND=${2:-ver}
+ROOT=$(cd "$(dirname "$0")/.." && pwd -P)
+AOT="$ROOT/target/Jcmdshell.aot"
+# The JAR path must match the training run for the AOT cache to be used.
+JCMDSHELL=${JCMDSHELL:-"java --enable-native-access=ALL-UNNAMED --add-modules jdk.incubator.vector -jar $ROOT/target/Jcmdshell-fat.jar"}
+
+now_ms()
+{
+    echo $(($(date +%s%N) / 1000000))
+}
+
+run_once()
+{
+    if [ "$2" = "exit" ]
+    then
+        $1 -e "$COMMAND" > /dev/null 2>&1
+    else
+        echo exit | $1 -i > /dev/null 2>&1
+    fi
+}
+
+# measure <label> <launcher> <exit|prompt>
+measure()
+{
+    # One unmeasured run warms the file system cache.
+    run_once "$2" "$3"
+
+    total=0
+    min=
+    max=0
+    i=0
+    while [ "$i" -lt "$RUNS" ]
+    do
+        start=$(now_ms)
+        run_once "$2" "$3"
+        elapsed=$(($(now_ms) - start))
+        total=$((total + elapsed))
+        [ -z "$min" ] || [ "$elapsed" -lt "$min" ] && min=$elapsed
+        [ "$elapsed" -gt "$max" ] && max=$elapsed
+        i=$((i + 1))
+    done
+
+    printf '%-8s %-7s mean %5d ms, min %5d ms, max %5d ms\n' "$1" "$3" $((total / RUNS)) "$min" "$max"
+}
+
+echo "$RUNS runs each; exit = -e \"$COMMAND\", prompt = first interactive prompt"
+measure cold "$JCMDSHELL" exit
+measure cold "$JCMDSHELL" prompt
+
+if [ -f "$AOT" ]
+then
+    CACHED=$(echo "$JCMDSHELL" | sed "s|^\([^ ]*\)|\1 -XX:AOTCache=$AOT|")
+    measure cached "$CACHED" exit
+    measure cached "$CACHED" prompt
+else
+    echo "No AOT cache at $AOT; build one with: mvn -Paot package"
+fi